@@ -0,0 +1,26 @@
+package hello.springtx;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * JMH 벤치마크에서 쓰는 스프링 컨텍스트 - 임베디드 H2, 로그는 최소로 줄인다.
+ */
+public final class BenchmarkContext {
+
+    private BenchmarkContext() {
+    }
+
+    public static ConfigurableApplicationContext start(Class<?>... sources) {
+        Class<?>[] all = new Class<?>[sources.length + 1];
+        all[0] = SpringtxApplication.class;
+        System.arraycopy(sources, 0, all, 1, sources.length);
+
+        return new SpringApplicationBuilder(all)
+                .properties("logging.level.root=WARN",
+                        "logging.level.hello.springtx=WARN",
+                        "spring.jmx.enabled=false",
+                        "springtx.log.outbox.poll-interval-ms=600000")
+                .run();
+    }
+}
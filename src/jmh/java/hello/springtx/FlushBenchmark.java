@@ -0,0 +1,85 @@
+package hello.springtx;
+
+import hello.springtx.order.Order;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 영속성 컨텍스트에 Order 가 많이 올라가 있을 때, 한 건의 payStatus 만 바꾸고 flush 하는 비용
+ * (OrderService.order 의 setPayStatus -> 커밋 시 flush 와 같은 상황)
+ *
+ * 바이트코드 향상 적용 : ./gradlew jmh -Pjmh.includes=FlushBenchmark
+ * 적용 전과 비교     : ./gradlew clean jmh -Pjmh.includes=FlushBenchmark -PdisableEnhancement
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FlushBenchmark {
+
+    @Param({"1000", "10000"})
+    int managedOrders;
+
+    private ConfigurableApplicationContext context;
+    private EntityManagerFactory emf;
+
+    private EntityManager em;
+    private Order target;
+    private int round;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        emf = context.getBean(EntityManagerFactory.class);
+
+        EntityManager loader = emf.createEntityManager();
+        loader.getTransaction().begin();
+        for (int i = 0; i < managedOrders; i++) {
+            Order order = new Order();
+            order.setUsername("정상");
+            order.setPayStatus("대기");
+            loader.persist(order);
+        }
+        loader.getTransaction().commit();
+        loader.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    // 매 호출 전에 모든 Order 를 영속성 컨텍스트에 올려둔다. (측정에서 제외)
+    @Setup(Level.Invocation)
+    public void load() {
+        em = emf.createEntityManager();
+        em.getTransaction().begin();
+        List<Order> orders = em.createQuery("select o from Order o", Order.class).getResultList();
+        target = orders.get(orders.size() / 2);
+    }
+
+    @TearDown(Level.Invocation)
+    public void rollback() {
+        em.getTransaction().rollback();
+        em.close();
+    }
+
+    @Benchmark
+    public void changeOneAndFlush() {
+        target.setPayStatus((round++ & 1) == 0 ? "완료" : "대기");
+        em.flush();
+    }
+}
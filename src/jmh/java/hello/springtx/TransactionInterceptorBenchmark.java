@@ -0,0 +1,125 @@
+package hello.springtx;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TxBasicTest 의 BasicService 와 같은 형태의 빈으로 트랜잭션 프록시(TransactionInterceptor) 비용을 잰다.
+ *
+ * plainCall              프록시가 아닌 객체의 메서드 직접 호출
+ * proxyNonTxMethod       프록시를 거치지만 @Transactional 이 없는 메서드 (인터셉터 체인 없음)
+ * proxyRequired          프록시 + REQUIRED 트랜잭션 시작/커밋 (JpaTransactionManager)
+ * proxyRequiresNew       외부 트랜잭션 안에서 REQUIRES_NEW 호출 (외부 보류 + 새 물리 트랜잭션)
+ * proxyRequiredJoin      외부 트랜잭션 안에서 REQUIRED 호출 (기존 트랜잭션 참여)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TransactionInterceptorBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private BasicService proxy;
+    private OuterService outer;
+    private final BasicService plain = new BasicService();
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start(Config.class);
+        proxy = context.getBean(BasicService.class);
+        outer = context.getBean(OuterService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public boolean plainCall() {
+        return plain.tx();
+    }
+
+    @Benchmark
+    public boolean proxyNonTxMethod() {
+        return proxy.nonTx();
+    }
+
+    @Benchmark
+    public boolean proxyRequired() {
+        return proxy.tx();
+    }
+
+    @Benchmark
+    public boolean proxyRequiresNew() {
+        return outer.callRequiresNew();
+    }
+
+    @Benchmark
+    public boolean proxyRequiredJoin() {
+        return outer.callRequired();
+    }
+
+    @Configuration
+    static class Config {
+
+        @Bean
+        BasicService basicService() {
+            return new BasicService();
+        }
+
+        @Bean
+        OuterService outerService(BasicService basicService) {
+            return new OuterService(basicService);
+        }
+    }
+
+    static class BasicService {
+
+        @Transactional
+        public boolean tx() {
+            return TransactionSynchronizationManager.isActualTransactionActive();
+        }
+
+        @Transactional(propagation = Propagation.REQUIRES_NEW)
+        public boolean requiresNew() {
+            return TransactionSynchronizationManager.isActualTransactionActive();
+        }
+
+        public boolean nonTx() {
+            return TransactionSynchronizationManager.isActualTransactionActive();
+        }
+    }
+
+    static class OuterService {
+
+        private final BasicService basicService;
+
+        OuterService(BasicService basicService) {
+            this.basicService = basicService;
+        }
+
+        @Transactional
+        public boolean callRequired() {
+            return basicService.tx();
+        }
+
+        @Transactional
+        public boolean callRequiresNew() {
+            return basicService.requiresNew();
+        }
+    }
+}
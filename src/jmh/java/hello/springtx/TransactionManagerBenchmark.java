@@ -0,0 +1,99 @@
+package hello.springtx;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BasicTxTest / MemberServiceTest 에서 다룬 트랜잭션 형태별 비용 (모두 임베디드 H2, 트랜잭션 안에서 select 1 한 번)
+ *
+ * noTransaction           트랜잭션 없이 쿼리만 실행
+ * jpaRequired             JpaTransactionManager 로 트랜잭션 하나
+ * dataSourceRequired      DataSourceTransactionManager 로 트랜잭션 하나
+ * jpaRequiredInRequired   외부 트랜잭션 + 내부 REQUIRED (참여)
+ * jpaRequiresNewInRequired 외부 트랜잭션 + 내부 REQUIRES_NEW (커넥션 하나 더)
+ * jpaInstrumented         트랜잭션 지표 기록(TransactionManagerMetricsInterceptor)까지 포함한 JpaTransactionManager
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TransactionManagerBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionTemplate jpa;
+    private TransactionTemplate jpaRequiresNew;
+    private TransactionTemplate dataSource;
+    private TransactionTemplate instrumented;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start();
+        DataSource ds = context.getBean(DataSource.class);
+        jdbcTemplate = new JdbcTemplate(ds);
+
+        PlatformTransactionManager txManager = context.getBean(PlatformTransactionManager.class);
+        PlatformTransactionManager jpaTxManager = (PlatformTransactionManager) AopProxyUtils.getSingletonTarget(txManager);
+
+        instrumented = new TransactionTemplate(txManager);
+        jpa = new TransactionTemplate(jpaTxManager);
+        jpaRequiresNew = new TransactionTemplate(jpaTxManager);
+        jpaRequiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        dataSource = new TransactionTemplate(new DataSourceTransactionManager(ds));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Integer noTransaction() {
+        return selectOne();
+    }
+
+    @Benchmark
+    public Integer jpaRequired() {
+        return jpa.execute(status -> selectOne());
+    }
+
+    @Benchmark
+    public Integer dataSourceRequired() {
+        return dataSource.execute(status -> selectOne());
+    }
+
+    @Benchmark
+    public Integer jpaRequiredInRequired() {
+        return jpa.execute(outer -> jpa.execute(inner -> selectOne()));
+    }
+
+    @Benchmark
+    public Integer jpaRequiresNewInRequired() {
+        return jpa.execute(outer -> jpaRequiresNew.execute(inner -> selectOne()));
+    }
+
+    @Benchmark
+    public Integer jpaInstrumented() {
+        return instrumented.execute(status -> selectOne());
+    }
+
+    private Integer selectOne() {
+        return jdbcTemplate.queryForObject("select 1", Integer.class);
+    }
+}
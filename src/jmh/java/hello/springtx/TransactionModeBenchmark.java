@@ -0,0 +1,88 @@
+package hello.springtx;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 프록시 방식과 컴파일 타임 위빙 방식의 호출당 비용 비교
+ * 같은 벤치마크를 두 번 실행해서 결과 파일을 비교한다.
+ *
+ * ./gradlew jmh -Pjmh.includes=TransactionModeBenchmark                    -> results.json (proxy)
+ * ./gradlew jmh -Pjmh.includes=TransactionModeBenchmark -PaspectjWeaving   -> results-aspectj.json
+ *
+ * nonTx            @Transactional 이 없는 메서드 (proxy: 프록시 디스패치만, aspectj: 일반 호출)
+ * readOnlyTx       readOnly 트랜잭션 시작/커밋 - 프록시 디스패치 + 인터셉터 체인 생성 vs 위빙된 코드
+ * selfInvocation   외부 메서드가 this.readOnlyTx() 호출 (proxy: 트랜잭션 없음, aspectj: 트랜잭션 적용)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TransactionModeBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private ModeService service;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start(Config.class);
+        service = context.getBean(ModeService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public boolean nonTx() {
+        return service.nonTx();
+    }
+
+    @Benchmark
+    public boolean readOnlyTx() {
+        return service.readOnlyTx();
+    }
+
+    @Benchmark
+    public boolean selfInvocation() {
+        return service.selfInvocation();
+    }
+
+    @Configuration
+    static class Config {
+
+        @Bean
+        ModeService modeService() {
+            return new ModeService();
+        }
+    }
+
+    static class ModeService {
+
+        public boolean nonTx() {
+            return TransactionSynchronizationManager.isActualTransactionActive();
+        }
+
+        @Transactional(readOnly = true)
+        public boolean readOnlyTx() {
+            return TransactionSynchronizationManager.isActualTransactionActive();
+        }
+
+        public boolean selfInvocation() {
+            return readOnlyTx();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package hello.springtx.loadtest;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 결과 리포트용 JSON 출력 - Map, List, Number, Boolean, String 만 지원한다.
+ */
+final class JsonWriter {
+
+    private JsonWriter() {
+    }
+
+    static String write(Object value) {
+        StringBuilder out = new StringBuilder();
+        write(value, out, 0);
+        return out.append('\n').toString();
+    }
+
+    private static void write(Object value, StringBuilder out, int depth) {
+        if (value == null) {
+            out.append("null");
+        } else if (value instanceof Map) {
+            writeMap((Map<?, ?>) value, out, depth);
+        } else if (value instanceof List) {
+            writeList((List<?>) value, out, depth);
+        } else if (value instanceof Double || value instanceof Float) {
+            double d = ((Number) value).doubleValue();
+            out.append(Double.isFinite(d) ? String.valueOf(d) : "null");
+        } else if (value instanceof Number || value instanceof Boolean) {
+            out.append(value);
+        } else {
+            writeString(value.toString(), out);
+        }
+    }
+
+    private static void writeMap(Map<?, ?> map, StringBuilder out, int depth) {
+        out.append('{');
+        Iterator<? extends Map.Entry<?, ?>> it = map.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<?, ?> entry = it.next();
+            newline(out, depth + 1);
+            writeString(entry.getKey().toString(), out);
+            out.append(": ");
+            write(entry.getValue(), out, depth + 1);
+            if (it.hasNext()) {
+                out.append(',');
+            }
+        }
+        newline(out, depth);
+        out.append('}');
+    }
+
+    private static void writeList(List<?> list, StringBuilder out, int depth) {
+        out.append('[');
+        for (int i = 0; i < list.size(); i++) {
+            newline(out, depth + 1);
+            write(list.get(i), out, depth + 1);
+            if (i < list.size() - 1) {
+                out.append(',');
+            }
+        }
+        newline(out, depth);
+        out.append(']');
+    }
+
+    private static void writeString(String s, StringBuilder out) {
+        out.append('"');
+        for (char c : s.toCharArray()) {
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    private static void newline(StringBuilder out, int depth) {
+        out.append('\n');
+        for (int i = 0; i < depth; i++) {
+            out.append("  ");
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package hello.springtx.loadtest;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 부하 테스트 설정 (springtx.loadtest.*) - 명령행 인자로 바꾼다.
+ * ./gradlew loadTest --args='--springtx.loadtest.threads=32 --springtx.loadtest.scenarios=order'
+ */
+@Getter
+@Setter
+public class LoadTestProperties {
+
+    // order, join-v1, join-v2 중에서 순서대로 실행
+    private List<String> scenarios = List.of("order", "join-v1", "join-v2");
+
+    private int threads = 16;
+    private Duration warmup = Duration.ofSeconds(5); // 측정하지 않고 실행만 한다. (JIT, 커넥션 풀)
+    private Duration duration = Duration.ofSeconds(30);
+
+    // 주문 username 비율 - 정상 / 예외(시스템 예외) / 잔고부족(비즈니스 예외), 나머지는 정상
+    private double exceptionRate = 0.1;
+    private double notEnoughMoneyRate = 0.1;
+
+    // 회원 가입 username 에 "로그예외" 를 붙이는 비율
+    private double logExceptionRate = 0.05;
+
+    // 결과 JSON 파일
+    private String report = "build/reports/loadtest/report.json";
+}
@@ -0,0 +1,330 @@
+package hello.springtx.loadtest;
+
+import hello.springtx.SpringtxApplication;
+import hello.springtx.order.NotEnoughMoneyException;
+import hello.springtx.order.Order;
+import hello.springtx.order.ShardedOrderService;
+import hello.springtx.propagation.MemberService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.UnexpectedRollbackException;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 주문/회원 가입 흐름 부하 테스트 - 임베디드 H2 에 정해진 동시성으로 일정 시간 호출한다.
+ *
+ * 시나리오
+ *   order    OrderService.order    - 정상/예외/잔고부족 username 비율 (ShardedOrderService 로 username 의 shard 에서)
+ *   join-v1  MemberService.joinV1  - 로그예외 비율 (로그 예외가 회원까지 롤백)
+ *   join-v2  MemberService.joinV2  - 로그예외 비율 (로그 예외를 잡고 회원은 커밋)
+ *
+ * 결과 (시나리오별, JSON)
+ *   처리량, 지연시간 p50/p99/p999 (HdrHistogram), 결과별 건수, UnexpectedRollbackException 건수,
+ *   트랜잭션 커밋/롤백 수와 롤백 비율 (springtx.tx.completion), 커넥션 획득 대기 시간 (hikaricp.connections.acquire),
+ *   물리 커넥션 점유 시간 (springtx.datasource.connection.hold)
+ *
+ * ./gradlew loadTest --args='--springtx.loadtest.threads=32 --springtx.loadtest.duration=60s'
+ */
+@Slf4j
+public class LoadTestRunner {
+
+    static final String SUCCESS = "success";
+    static final String BIZ_EXCEPTION = "bizException"; // NotEnoughMoneyException - 커밋
+    static final String SYSTEM_EXCEPTION = "systemException"; // 런타임 예외 - 롤백
+    static final String UNEXPECTED_ROLLBACK = "unexpectedRollback";
+
+    private final ConfigurableApplicationContext context;
+    private final LoadTestProperties properties;
+    private final MeterRegistry registry;
+    private final AtomicLong sequence = new AtomicLong();
+
+    LoadTestRunner(ConfigurableApplicationContext context, LoadTestProperties properties) {
+        this.context = context;
+        this.properties = properties;
+        this.registry = context.getBean(MeterRegistry.class);
+    }
+
+    public static void main(String[] args) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(SpringtxApplication.class)
+                .properties("logging.level.hello.springtx=WARN",
+                        "logging.level.hello.springtx.loadtest=INFO",
+                        "logging.level.org.hibernate.SQL=OFF",
+                        "springtx.log.outbox.poll-interval-ms=600000",
+                        "springtx.datasource.connection.hold-metrics=true") // lazy-connection=false 일 때도 점유 시간을 비교한다.
+                .run(args)) {
+            LoadTestProperties properties = Binder.get(context.getEnvironment())
+                    .bindOrCreate("springtx.loadtest", LoadTestProperties.class);
+            new LoadTestRunner(context, properties).run();
+        }
+    }
+
+    void run() throws Exception {
+        List<Object> results = new ArrayList<>();
+        for (String name : properties.getScenarios()) {
+            Scenario scenario = scenario(name);
+            log.info("[{}] 워밍업 {}", name, properties.getWarmup());
+            execute(scenario, properties.getWarmup());
+            log.info("[{}] 측정 {}, threads={}", name, properties.getDuration(), properties.getThreads());
+            Map<String, Object> result = measure(name, scenario);
+            log.info("[{}] {}", name, result);
+            results.add(result);
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("startedAt", Instant.now().toString());
+        report.put("config", config());
+        report.put("scenarios", results);
+
+        Path path = Path.of(properties.getReport());
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        Files.writeString(path, JsonWriter.write(report), StandardCharsets.UTF_8);
+        log.info("리포트 {}", path.toAbsolutePath());
+    }
+
+    private Scenario scenario(String name) {
+        switch (name) {
+            case "order": {
+                ShardedOrderService orderService = context.getBean(ShardedOrderService.class);
+                return random -> {
+                    Order order = new Order();
+                    order.setUsername(orderUsername(random.nextDouble()));
+                    orderService.order(order);
+                };
+            }
+            case "join-v1": {
+                MemberService memberService = context.getBean(MemberService.class);
+                return random -> memberService.joinV1(joinUsername("v1", random.nextDouble()));
+            }
+            case "join-v2": {
+                MemberService memberService = context.getBean(MemberService.class);
+                return random -> memberService.joinV2(joinUsername("v2", random.nextDouble()));
+            }
+            default:
+                throw new IllegalArgumentException("알 수 없는 시나리오: " + name);
+        }
+    }
+
+    private String orderUsername(double r) {
+        if (r < properties.getExceptionRate()) {
+            return "예외";
+        }
+        if (r < properties.getExceptionRate() + properties.getNotEnoughMoneyRate()) {
+            return "잔고부족";
+        }
+        return "정상";
+    }
+
+    // username 은 unique 이므로 매번 다른 값
+    private String joinUsername(String version, double r) {
+        String username = "loadtest-" + version + "-" + sequence.incrementAndGet();
+        return r < properties.getLogExceptionRate() ? username + "-로그예외" : username;
+    }
+
+    private Map<String, Object> measure(String name, Scenario scenario) throws Exception {
+        Map<String, Long> txBefore = transactionCounts();
+        Map<String, Double> acquireBefore = acquireTotals();
+        Map<String, Double> connectionsBefore = connectionCounts();
+
+        Execution execution = execute(scenario, properties.getDuration());
+
+        Map<String, Long> txAfter = transactionCounts();
+        long commits = txAfter.get("commit") - txBefore.get("commit");
+        long rollbacks = txAfter.get("rollback") - txBefore.get("rollback");
+
+        Histogram histogram = execution.latency;
+        long operations = histogram.getTotalCount();
+        Map<String, Object> latency = new LinkedHashMap<>();
+        latency.put("p50", micros(histogram.getValueAtPercentile(50)));
+        latency.put("p99", micros(histogram.getValueAtPercentile(99)));
+        latency.put("p999", micros(histogram.getValueAtPercentile(99.9)));
+        latency.put("max", micros(histogram.getMaxValue()));
+        latency.put("mean", histogram.getMean() / 1_000);
+
+        Map<String, Object> transactions = new LinkedHashMap<>();
+        transactions.put("commit", commits);
+        transactions.put("rollback", rollbacks);
+        transactions.put("rollbackRate", commits + rollbacks == 0 ? 0.0 : (double) rollbacks / (commits + rollbacks));
+
+        // shard 를 쓰면 풀이 shard 마다 있으므로 모든 풀(pool 태그)을 합친다.
+        Map<String, Object> connectionAcquire = new LinkedHashMap<>();
+        Map<String, Double> acquireAfter = acquireTotals();
+        if (acquireAfter.get("pools") > 0) {
+            double count = acquireAfter.get("count") - acquireBefore.get("count");
+            double nanos = acquireAfter.get("nanos") - acquireBefore.get("nanos");
+            connectionAcquire.put("pools", acquireAfter.get("pools").intValue());
+            connectionAcquire.put("count", (long) count);
+            connectionAcquire.put("totalMillis", nanos / 1_000_000);
+            connectionAcquire.put("meanMicros", count == 0 ? 0.0 : nanos / count / 1_000);
+            connectionAcquire.put("maxMicros", acquireAfter.get("maxMicros"));
+        }
+
+        // 물리 커넥션 점유 시간 - springtx.datasource.lazy-connection=true/false 로 두 번 실행해서 비교한다.
+        Map<String, Object> connectionHold = new LinkedHashMap<>();
+        Map<String, Double> connectionsAfter = connectionCounts();
+        double physical = connectionsAfter.get("physical") - connectionsBefore.get("physical");
+        double holdNanos = connectionsAfter.get("holdNanos") - connectionsBefore.get("holdNanos");
+        connectionHold.put("logical", connectionsAfter.get("logical") - connectionsBefore.get("logical"));
+        connectionHold.put("physical", physical);
+        connectionHold.put("totalMillis", holdNanos / 1_000_000);
+        connectionHold.put("meanMicros", physical == 0 ? 0.0 : holdNanos / physical / 1_000);
+
+        Map<String, Object> outcomes = new LinkedHashMap<>();
+        execution.outcomes.forEach((outcome, count) -> outcomes.put(outcome, count.sum()));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("scenario", name);
+        result.put("threads", properties.getThreads());
+        result.put("durationMillis", execution.elapsedNanos / 1_000_000);
+        result.put("operations", operations);
+        result.put("throughputPerSecond", operations * 1_000_000_000.0 / execution.elapsedNanos);
+        result.put("latencyMicros", latency);
+        result.put("outcomes", outcomes);
+        result.put("unexpectedRollbackCount", execution.outcomes.getOrDefault(UNEXPECTED_ROLLBACK, new LongAdder()).sum());
+        result.put("transactions", transactions);
+        result.put("connectionAcquire", connectionAcquire);
+        result.put("connectionHold", connectionHold);
+        return result;
+    }
+
+    private Execution execute(Scenario scenario, Duration duration) throws Exception {
+        Recorder recorder = new Recorder(3);
+        Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+        long start = System.nanoTime();
+        long deadline = start + duration.toNanos();
+
+        ExecutorService executor = Executors.newFixedThreadPool(properties.getThreads());
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int i = 0; i < properties.getThreads(); i++) {
+                workers.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (System.nanoTime() < deadline) {
+                        long callStart = System.nanoTime();
+                        String outcome = call(scenario, random);
+                        recorder.recordValue(System.nanoTime() - callStart);
+                        outcomes.computeIfAbsent(outcome, key -> new LongAdder()).increment();
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return new Execution(recorder.getIntervalHistogram(), outcomes, System.nanoTime() - start);
+    }
+
+    private static String call(Scenario scenario, ThreadLocalRandom random) {
+        try {
+            scenario.call(random);
+            return SUCCESS;
+        } catch (NotEnoughMoneyException e) {
+            return BIZ_EXCEPTION;
+        } catch (UnexpectedRollbackException e) {
+            return UNEXPECTED_ROLLBACK;
+        } catch (RuntimeException e) {
+            return SYSTEM_EXCEPTION;
+        } catch (Exception e) {
+            return e.getClass().getSimpleName();
+        }
+    }
+
+    // 모든 @Transactional 메서드의 커밋/롤백 수 (물리 트랜잭션과 참여한 트랜잭션 모두)
+    private Map<String, Long> transactionCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        counts.put("commit", 0L);
+        counts.put("rollback", 0L);
+        for (Timer timer : registry.find("springtx.tx.completion").timers()) {
+            counts.merge(timer.getId().getTag("outcome"), timer.count(), Long::sum);
+        }
+        return counts;
+    }
+
+    // LazyConnectionConfig 의 지표 - logical 은 지연 프록시를 쓸 때만 있다.
+    private Map<String, Double> connectionCounts() {
+        Map<String, Double> counts = new LinkedHashMap<>();
+        Counter logical = registry.find("springtx.datasource.connection.logical").counter();
+        Counter physical = registry.find("springtx.datasource.connection.physical").counter();
+        Timer hold = registry.find("springtx.datasource.connection.hold").timer();
+        counts.put("logical", logical != null ? logical.count() : 0.0);
+        counts.put("physical", physical != null ? physical.count() : 0.0);
+        counts.put("holdNanos", hold != null ? hold.totalTime(TimeUnit.NANOSECONDS) : 0.0);
+        return counts;
+    }
+
+    private Map<String, Double> acquireTotals() {
+        Map<String, Double> totals = new LinkedHashMap<>();
+        double pools = 0, count = 0, nanos = 0, maxMicros = 0;
+        for (Timer acquire : registry.find("hikaricp.connections.acquire").timers()) {
+            pools++;
+            count += acquire.count();
+            nanos += acquire.totalTime(TimeUnit.NANOSECONDS);
+            maxMicros = Math.max(maxMicros, acquire.max(TimeUnit.MICROSECONDS));
+        }
+        totals.put("pools", pools);
+        totals.put("count", count);
+        totals.put("nanos", nanos);
+        totals.put("maxMicros", maxMicros);
+        return totals;
+    }
+
+    private Map<String, Object> config() {
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("threads", properties.getThreads());
+        config.put("warmup", properties.getWarmup().toString());
+        config.put("duration", properties.getDuration().toString());
+        config.put("exceptionRate", properties.getExceptionRate());
+        config.put("notEnoughMoneyRate", properties.getNotEnoughMoneyRate());
+        config.put("logExceptionRate", properties.getLogExceptionRate());
+        config.put("lazyConnection", context.getEnvironment().getProperty("springtx.datasource.lazy-connection", "false"));
+        config.put("javaVersion", System.getProperty("java.version"));
+        return config;
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1_000.0;
+    }
+
+    interface Scenario {
+        void call(ThreadLocalRandom random) throws Exception;
+    }
+
+    private static class Execution {
+        private final Histogram latency;
+        private final Map<String, LongAdder> outcomes;
+        private final long elapsedNanos;
+
+        private Execution(Histogram latency, Map<String, LongAdder> outcomes, long elapsedNanos) {
+            this.latency = latency;
+            this.outcomes = outcomes;
+            this.elapsedNanos = elapsedNanos;
+        }
+    }
+}
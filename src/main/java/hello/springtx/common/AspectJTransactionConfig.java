@@ -0,0 +1,22 @@
+package hello.springtx.common;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.AdviceMode;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+
+/**
+ * 컴파일 타임 위빙(-PaspectjWeaving)으로 빌드했을 때 켠다. (springtx.tx.mode=aspectj)
+ *
+ * 트랜잭션 프록시를 만들지 않고, 클래스에 위빙된 AnnotationTransactionAspect 에 트랜잭션 매니저를 연결한다.
+ * - 내부 호출(this.internal())도 트랜잭션이 적용된다. (InternalCallV1Test 의 문제가 사라진다)
+ * - 호출마다 프록시 디스패치와 인터셉터 체인(MethodInvocation) 생성이 없다.
+ *
+ * 이 설정이 있으면 스프링 부트의 프록시 방식 @EnableTransactionManagement 자동 설정은 동작하지 않는다.
+ * 위빙하지 않고 이 모드를 켜면 @Transactional 이 아무것도 하지 않으므로 빌드 옵션과 함께 사용한다.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "springtx.tx", name = "mode", havingValue = "aspectj")
+@EnableTransactionManagement(mode = AdviceMode.ASPECTJ)
+public class AspectJTransactionConfig {
+}
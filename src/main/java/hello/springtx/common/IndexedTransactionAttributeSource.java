@@ -0,0 +1,52 @@
+package hello.springtx.common;
+
+import org.springframework.core.MethodClassKey;
+import org.springframework.transaction.interceptor.TransactionAttribute;
+import org.springframework.transaction.interceptor.TransactionAttributeSource;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 인덱스에 있는 클래스는 인덱스에서, 없는 클래스(라이브러리, 인덱스에서 제외된 클래스)는 원래 소스에서 속성을 찾는다.
+ * 결과는 메서드/클래스별로 캐시한다. (AnnotationTransactionAttributeSource 와 같이)
+ */
+public class IndexedTransactionAttributeSource implements TransactionAttributeSource {
+
+    private final TransactionAttributeIndex index;
+    private final TransactionAttributeSource fallback;
+    private final Map<MethodClassKey, Optional<TransactionAttribute>> cache = new ConcurrentHashMap<>();
+
+    public IndexedTransactionAttributeSource(TransactionAttributeIndex index, TransactionAttributeSource fallback) {
+        this.index = index;
+        this.fallback = fallback;
+    }
+
+    @Override
+    public boolean isCandidateClass(Class<?> targetClass) {
+        return index.covers(ClassUtils.getUserClass(targetClass)) || fallback.isCandidateClass(targetClass);
+    }
+
+    @Override
+    public TransactionAttribute getTransactionAttribute(Method method, Class<?> targetClass) {
+        Class<?> userClass = ClassUtils.getUserClass(targetClass != null ? targetClass : method.getDeclaringClass());
+        if (!index.covers(userClass)) {
+            return fallback.getTransactionAttribute(method, targetClass);
+        }
+        return cache.computeIfAbsent(new MethodClassKey(method, targetClass),
+                key -> Optional.ofNullable(lookup(method, userClass))).orElse(null);
+    }
+
+    private TransactionAttribute lookup(Method method, Class<?> userClass) {
+        if (method.getDeclaringClass() == Object.class || !Modifier.isPublic(method.getModifiers())) {
+            return null; // 인덱스에는 public 메서드만 있다. (프록시 방식과 같음)
+        }
+        // 인터페이스 메서드로 호출되어도 대상 클래스의 메서드로 찾는다.
+        Method specificMethod = ClassUtils.getMostSpecificMethod(method, userClass);
+        return index.get(userClass, specificMethod);
+    }
+}
@@ -0,0 +1,57 @@
+package hello.springtx.common;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.hibernate.StatelessSession;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import java.sql.Savepoint;
+import java.util.function.Consumer;
+
+/**
+ * 진행 중인 JPA 트랜잭션의 커넥션에 JDBC savepoint 를 만들고 작업을 실행한다.
+ * 작업이 실패하면 savepoint 까지만 롤백하고, 바깥 트랜잭션은 그대로 커밋할 수 있다. (커넥션 하나, 커밋 한 번)
+ *
+ * JpaTransactionManager 는 NESTED 를 지원하지 않는다. (Hibernate 는 savepoint 롤백 시 영속성 컨텍스트를 되돌리지 못한다)
+ * 그래서 작업은 영속성 컨텍스트를 쓰지 않는 StatelessSession 으로, 같은 커넥션 위에서 실행한다.
+ * 작업 중 예외가 나도 바깥 EntityManager 는 rollback-only 로 표시되지 않는다.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class JpaSavepointTemplate {
+
+    private final EntityManager em;
+
+    /**
+     * @return 작업이 성공하면 true, 실패해서 savepoint 까지 롤백했으면 false
+     */
+    public boolean execute(Consumer<StatelessSession> work) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalTransactionStateException("savepoint 는 진행 중인 트랜잭션 안에서만 사용할 수 있다.");
+        }
+
+        Session session = em.unwrap(Session.class);
+        return session.doReturningWork(connection -> {
+            Savepoint savepoint = connection.setSavepoint();
+            StatelessSession statelessSession = session.getSessionFactory().withStatelessOptions()
+                    .connection(connection)
+                    .openStatelessSession();
+            try {
+                work.accept(statelessSession);
+            } catch (RuntimeException e) {
+                log.info("savepoint 까지 롤백. ex={}", e.toString());
+                connection.rollback(savepoint);
+                return false;
+            } finally {
+                statelessSession.close();
+            }
+            connection.releaseSavepoint(savepoint);
+            return true;
+        });
+    }
+}
@@ -0,0 +1,32 @@
+package hello.springtx.common;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.aop.support.ComposablePointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+
+/**
+ * @RetryOnOptimisticLock 어드바이저 등록
+ *
+ * 트랜잭션 어드바이저(LOWEST_PRECEDENCE)보다 먼저(바깥에서) 실행되어야 재시도마다 새 트랜잭션이 시작된다.
+ * 스프링 부트가 등록하는 InfrastructureAdvisorAutoProxyCreator 는 ROLE_INFRASTRUCTURE 어드바이저만 적용한다.
+ */
+@Configuration
+public class OptimisticLockRetryConfig {
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    DefaultPointcutAdvisor optimisticLockRetryAdvisor(OptimisticLockRetryProperties properties, ObjectProvider<MeterRegistry> meterRegistry) {
+        ComposablePointcut pointcut = new ComposablePointcut(new AnnotationMatchingPointcut(RetryOnOptimisticLock.class, true))
+                .union(new AnnotationMatchingPointcut(null, RetryOnOptimisticLock.class, true));
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(pointcut, new OptimisticLockRetryInterceptor(properties, meterRegistry));
+        advisor.setOrder(Ordered.LOWEST_PRECEDENCE - 1);
+        return advisor;
+    }
+}
@@ -0,0 +1,89 @@
+package hello.springtx.common;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.ClassUtils;
+
+import javax.persistence.OptimisticLockException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 낙관적 락 충돌 시 재시도
+ *
+ * springtx.tx.optimistic.conflict    충돌 횟수 - method
+ * springtx.tx.optimistic.retry       재시도 횟수 - method
+ * springtx.tx.optimistic.exhausted   재시도를 모두 쓰고 실패한 횟수 - method
+ */
+@Slf4j
+public class OptimisticLockRetryInterceptor implements MethodInterceptor {
+
+    private final OptimisticLockRetryProperties properties;
+    private final ObjectProvider<MeterRegistry> registryProvider;
+
+    public OptimisticLockRetryInterceptor(OptimisticLockRetryProperties properties, ObjectProvider<MeterRegistry> registryProvider) {
+        this.properties = properties;
+        this.registryProvider = registryProvider;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return invocation.proceed(); // 바깥 트랜잭션에 참여 - 재시도는 바깥에서 한다.
+        }
+
+        String method = ClassUtils.getQualifiedMethodName(invocation.getMethod());
+        int maxAttempts = Math.max(1, properties.getMaxAttempts());
+        for (int attempt = 1; ; attempt++) {
+            try {
+                // 같은 MethodInvocation 은 한 번만 proceed 할 수 있으므로 재시도마다 복제한다.
+                return ((ProxyMethodInvocation) invocation).invocableClone().proceed();
+            } catch (RuntimeException e) {
+                if (!isOptimisticLockFailure(e)) {
+                    throw e;
+                }
+                increment("springtx.tx.optimistic.conflict", method);
+                if (attempt >= maxAttempts) {
+                    log.warn("낙관적 락 충돌 재시도 실패 method={}, attempts={}", method, attempt);
+                    increment("springtx.tx.optimistic.exhausted", method);
+                    throw e;
+                }
+                long sleepMillis = backoffMillis(attempt);
+                log.info("낙관적 락 충돌 method={}, attempt={}, {}ms 후 재시도", method, attempt, sleepMillis);
+                increment("springtx.tx.optimistic.retry", method);
+                Thread.sleep(sleepMillis);
+            }
+        }
+    }
+
+    private static boolean isOptimisticLockFailure(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof OptimisticLockingFailureException || t instanceof OptimisticLockException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    long backoffMillis(int attempt) {
+        long base = properties.getBackoff().toMillis() << Math.min(attempt - 1, 20);
+        long capped = Math.min(base, properties.getMaxBackoff().toMillis());
+        double jitter = properties.getJitter();
+        double factor = 1 - jitter + ThreadLocalRandom.current().nextDouble() * 2 * jitter;
+        return Math.max(0, Math.round(capped * factor));
+    }
+
+    private void increment(String name, String method) {
+        Counter.builder(name)
+                .tag("method", method)
+                .register(registryProvider.getIfAvailable(() -> Metrics.globalRegistry))
+                .increment();
+    }
+}
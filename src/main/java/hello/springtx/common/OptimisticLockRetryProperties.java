@@ -0,0 +1,28 @@
+package hello.springtx.common;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * @RetryOnOptimisticLock 재시도 설정
+ */
+@Getter
+@Setter
+@ConfigurationProperties("springtx.tx.optimistic-lock")
+public class OptimisticLockRetryProperties {
+
+    // 처음 실행을 포함한 최대 실행 횟수
+    private int maxAttempts = 5;
+
+    // 첫 재시도 전 대기 시간 - 재시도마다 두 배씩 늘어난다.
+    private Duration backoff = Duration.ofMillis(10);
+
+    // 대기 시간 상한
+    private Duration maxBackoff = Duration.ofMillis(200);
+
+    // 대기 시간을 +-jitter 비율만큼 무작위로 흔든다. - 충돌한 요청들이 같은 시점에 다시 충돌하지 않도록
+    private double jitter = 0.5;
+}
@@ -0,0 +1,42 @@
+package hello.springtx.common;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+/**
+ * Member, Log, Order 가 함께 쓰는 시퀀스 기반 id 생성기
+ *
+ * 기본 @GeneratedValue 는 엔티티를 저장할 때마다 시퀀스를 한 번씩 호출한다.
+ * 이 생성기는 시퀀스를 allocation size 만큼 증가시켜 두고 그 구간의 id 를 메모리에서 나눠준다. (pooled-lo)
+ * allocation size 는 spring.jpa.properties.springtx.id.allocation_size 로 설정한다.
+ */
+public class PooledSequenceGenerator extends SequenceStyleGenerator {
+
+    public static final String NAME = "springtx_seq_generator";
+    public static final String STRATEGY = "hello.springtx.common.PooledSequenceGenerator";
+
+    public static final String SEQUENCE_NAME = "springtx_seq";
+    public static final String ALLOCATION_SIZE_SETTING = "springtx.id.allocation_size";
+    public static final int DEFAULT_ALLOCATION_SIZE = 50;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        int allocationSize = ConfigurationHelper.getInt(ALLOCATION_SIZE_SETTING,
+                serviceRegistry.getService(ConfigurationService.class).getSettings(), DEFAULT_ALLOCATION_SIZE);
+
+        params.setProperty(SEQUENCE_PARAM, SEQUENCE_NAME);
+        params.setProperty(INCREMENT_PARAM, String.valueOf(allocationSize));
+        params.setProperty(OPT_PARAM, allocationSize > 1
+                ? StandardOptimizerDescriptor.POOLED_LO.getExternalName()
+                : StandardOptimizerDescriptor.NONE.getExternalName());
+
+        super.configure(type, params, serviceRegistry);
+    }
+}
@@ -0,0 +1,19 @@
+package hello.springtx.common;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 낙관적 락 충돌(@Version)로 실패하면 트랜잭션을 처음부터 다시 실행한다.
+ * @Transactional 보다 바깥에서 동작하므로 재시도마다 새 트랜잭션(새 영속성 컨텍스트)에서 최신 데이터를 다시 읽는다.
+ *
+ * 이미 진행 중인 트랜잭션에 참여한 호출은 재시도하지 않는다. - 바깥 트랜잭션 전체를 다시 실행해야 하기 때문
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface RetryOnOptimisticLock {
+}
@@ -0,0 +1,93 @@
+package hello.springtx.common;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OrderService, MemberService 호출을 별도 스레드에서 실행한다.
+ *
+ * 트랜잭션은 TransactionSynchronizationManager 의 ThreadLocal 에 묶이므로,
+ * @Transactional 메서드 호출 하나가 처음부터 끝까지 작업 스레드 하나에서 실행되도록 호출 단위로 넘겨야 한다.
+ * (작업 안에서 다른 스레드로 넘어가면 트랜잭션이 이어지지 않는다)
+ *
+ * 가상 스레드 모드 - JDK 21 이상에서 실행될 때만 사용할 수 있다. (컴파일 대상은 Java 11 이므로 리플렉션으로 찾는다)
+ * JDBC 드라이버(H2)는 synchronized 블록 안에서 I/O 를 하기 때문에 그 동안 캐리어 스레드가 고정(pinning)된다.
+ * 그래서 가상 스레드 모드에서만 동시 호출 수를 커넥션 풀 크기만큼 Semaphore 로 제한한다.
+ * 나머지 가상 스레드는 synchronized 가 아닌 Semaphore 에서 기다리므로 캐리어 스레드를 놓아준다.
+ * 플랫폼 스레드 모드는 스레드 풀 크기(platformThreads)가 곧 동시 호출 수다. - 두 모드를 비교할 때 같은 제한이 걸리지 않게 한다.
+ */
+@Slf4j
+@Component
+public class ServiceCallExecutor {
+
+    private final ExecutorService executor;
+    private final Semaphore permits; // 가상 스레드 모드에서만 사용한다. (플랫폼 스레드 모드는 null)
+    private final boolean virtual;
+
+    public ServiceCallExecutor(ServiceExecutorProperties properties) {
+        ExecutorService virtualExecutor = properties.isVirtualThreads() ? newVirtualThreadPerTaskExecutor() : null;
+        this.virtual = virtualExecutor != null;
+        this.executor = virtual ? virtualExecutor : Executors.newFixedThreadPool(properties.getPlatformThreads());
+        this.permits = virtual ? new Semaphore(properties.getMaxConcurrentCalls()) : null;
+        log.info("서비스 호출 실행기 - {}", virtual ? "가상 스레드" : "플랫폼 스레드 " + properties.getPlatformThreads() + "개");
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    public <T> CompletableFuture<T> submit(Callable<T> call) {
+        if (permits == null) {
+            return CompletableFuture.supplyAsync(() -> call(call), executor);
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+            try {
+                return call(call);
+            } finally {
+                permits.release();
+            }
+        }, executor);
+    }
+
+    private static <T> T call(Callable<T> call) {
+        try {
+            return call.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() (JDK 21+) - 사용할 수 없으면 null
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            log.warn("가상 스레드를 사용할 수 없어 플랫폼 스레드를 사용합니다. java.version={}", System.getProperty("java.version"));
+            return null;
+        }
+    }
+}
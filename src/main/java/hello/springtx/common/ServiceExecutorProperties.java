@@ -0,0 +1,24 @@
+package hello.springtx.common;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 서비스 호출 실행기(ServiceCallExecutor) 설정
+ */
+@Getter
+@Setter
+@ConfigurationProperties("springtx.executor")
+public class ServiceExecutorProperties {
+
+    // true 이고 JDK 21 이상에서 실행되면 호출마다 가상 스레드를 만든다. (아니면 플랫폼 스레드 풀)
+    private boolean virtualThreads = false;
+
+    // virtualThreads=false 일 때 플랫폼 스레드 풀 크기
+    private int platformThreads = 200;
+
+    // 가상 스레드 모드에서 동시에 서비스(=DB)를 호출할 수 있는 작업 수 - 커넥션 풀 크기에 맞춘다.
+    // (플랫폼 스레드 모드는 platformThreads 로 제한된다)
+    private int maxConcurrentCalls = 10;
+}
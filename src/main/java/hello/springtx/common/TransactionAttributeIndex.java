@@ -0,0 +1,113 @@
+package hello.springtx.common;
+
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.transaction.interceptor.DefaultTransactionAttribute;
+import org.springframework.transaction.interceptor.TransactionAttribute;
+import org.springframework.transaction.interceptor.TransactionAttributeEditor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 빌드 시 tx-index-processor 가 만든 @Transactional 속성 인덱스
+ * (META-INF/springtx/transaction-attributes.properties, 클래스패스의 모든 파일을 합친다)
+ *
+ * 인덱스에 있는 클래스는 애노테이션을 다시 읽지 않고 인덱스의 속성을 그대로 쓴다.
+ */
+public class TransactionAttributeIndex {
+
+    public static final String LOCATION = "classpath*:META-INF/springtx/transaction-attributes.properties";
+    private static final String QUALIFIER = "qualifier_";
+
+    private final Set<String> classes = new HashSet<>();
+    private final Map<String, TransactionAttribute> attributes = new HashMap<>();
+    private final Map<String, String> descriptions = new HashMap<>();
+
+    TransactionAttributeIndex(Properties properties) {
+        for (String key : properties.stringPropertyNames()) {
+            int methodStart = key.indexOf('#');
+            if (methodStart < 0) {
+                classes.add(key);
+                continue;
+            }
+            String description = properties.getProperty(key);
+            descriptions.put(key, description);
+            attributes.put(key, parse(key.substring(0, methodStart) + "." + key.substring(methodStart + 1, key.indexOf('(')), description));
+        }
+    }
+
+    public static TransactionAttributeIndex load(ClassLoader classLoader) {
+        Properties properties = new Properties();
+        try {
+            for (Resource resource : new PathMatchingResourcePatternResolver(classLoader).getResources(LOCATION)) {
+                PropertiesLoaderUtils.fillProperties(properties, new EncodedResource(resource, StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("트랜잭션 속성 인덱스를 읽을 수 없다.", e);
+        }
+        return new TransactionAttributeIndex(properties);
+    }
+
+    public boolean isEmpty() {
+        return classes.isEmpty();
+    }
+
+    // 인덱스에 포함된 클래스인가 - 포함된 클래스의 메서드가 인덱스에 없으면 트랜잭션이 없는 메서드다.
+    public boolean covers(Class<?> userClass) {
+        return classes.contains(userClass.getName());
+    }
+
+    public TransactionAttribute get(Class<?> userClass, Method method) {
+        return attributes.get(key(userClass, method));
+    }
+
+    // 검증용 - 키(클래스#메서드(파라미터)) -> 원본 문자열
+    public Map<String, String> descriptions() {
+        return Collections.unmodifiableMap(descriptions);
+    }
+
+    public Set<String> classes() {
+        return Collections.unmodifiableSet(classes);
+    }
+
+    public static String key(Class<?> userClass, Method method) {
+        String parameters = Arrays.stream(method.getParameterTypes())
+                .map(Class::getCanonicalName)
+                .collect(Collectors.joining(","));
+        return userClass.getName() + "#" + method.getName() + "(" + parameters + ")";
+    }
+
+    // TransactionAttributeEditor 형식에서 qualifier_ 토큰만 따로 처리한다.
+    private static TransactionAttribute parse(String descriptor, String description) {
+        List<String> tokens = new ArrayList<>();
+        String qualifier = null;
+        for (String token : description.split(",")) {
+            if (token.startsWith(QUALIFIER)) {
+                qualifier = token.substring(QUALIFIER.length());
+            } else {
+                tokens.add(token);
+            }
+        }
+        TransactionAttributeEditor editor = new TransactionAttributeEditor();
+        editor.setAsText(String.join(",", tokens));
+        DefaultTransactionAttribute attribute = (DefaultTransactionAttribute) editor.getValue();
+        attribute.setQualifier(qualifier);
+        attribute.setDescriptor(descriptor);
+        return attribute;
+    }
+}
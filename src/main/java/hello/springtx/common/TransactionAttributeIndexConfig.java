@@ -0,0 +1,44 @@
+package hello.springtx.common;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.transaction.interceptor.TransactionAttributeSource;
+import org.springframework.util.ClassUtils;
+
+/**
+ * 트랜잭션 프록시가 쓰는 transactionAttributeSource 빈을 빌드 시 만든 인덱스로 감싼다.
+ * 구동 시 인덱스를 한 번 읽고, 첫 호출에 애노테이션을 리플렉션으로 찾지 않는다.
+ *
+ * springtx.tx.attribute-index.enabled=false 이거나 인덱스가 없으면(프로세서 없이 컴파일) 원래 소스를 그대로 쓴다.
+ */
+@Slf4j
+@Configuration
+public class TransactionAttributeIndexConfig {
+
+    static final String TRANSACTION_ATTRIBUTE_SOURCE = "transactionAttributeSource";
+
+    // BeanPostProcessor 는 다른 빈보다 먼저 만들어져야 하므로 static 으로 등록한다.
+    @Bean
+    static BeanPostProcessor transactionAttributeIndexPostProcessor(Environment environment) {
+        boolean enabled = Binder.get(environment).bind("springtx.tx.attribute-index.enabled", Boolean.class).orElse(true);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!enabled || !TRANSACTION_ATTRIBUTE_SOURCE.equals(beanName) || !(bean instanceof TransactionAttributeSource)) {
+                    return bean;
+                }
+                TransactionAttributeIndex index = TransactionAttributeIndex.load(ClassUtils.getDefaultClassLoader());
+                if (index.isEmpty()) {
+                    log.info("트랜잭션 속성 인덱스 없음 - 애노테이션을 리플렉션으로 찾는다.");
+                    return bean;
+                }
+                log.info("트랜잭션 속성 인덱스 사용 classes={}, methods={}", index.classes().size(), index.descriptions().size());
+                return new IndexedTransactionAttributeSource(index, (TransactionAttributeSource) bean);
+            }
+        };
+    }
+}
@@ -0,0 +1,132 @@
+package hello.springtx.common;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.UnexpectedRollbackException;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * 트랜잭션 매니저의 시작/커밋/롤백 시간과 커넥션 점유 시간을 기록한다.
+ * 실제 트랜잭션 처리는 모두 원래 트랜잭션 매니저에 위임한다.
+ *
+ * 원래 트랜잭션 매니저가 구현한 인터페이스(ResourceTransactionManager 등)를 모두 유지하는 JDK 프록시로 붙인다.
+ * (AbstractPlatformTransactionManager 의 getTransaction/commit/rollback 은 final 이라 클래스 프록시로는 가로챌 수 없다)
+ * 원래 트랜잭션 매니저는 AopProxyUtils.getSingletonTarget 으로 꺼낼 수 있다.
+ */
+public class TransactionManagerMetricsInterceptor implements MethodInterceptor {
+
+    private static final String[] PROPAGATION_NAMES = {
+            "REQUIRED", "SUPPORTS", "MANDATORY", "REQUIRES_NEW", "NOT_SUPPORTED", "NEVER", "NESTED"};
+
+    private final TransactionMetrics metrics;
+
+    // 커밋/롤백을 호출하지 않고 버려진 status 가 쌓이지 않도록 status 를 약한 참조 키로 들고 있는다.
+    // (DefaultTransactionStatus 는 equals/hashCode 를 재정의하지 않으므로 객체 자체로 비교한다)
+    private final Map<TransactionStatus, Started> started = Collections.synchronizedMap(new WeakHashMap<>());
+
+    TransactionManagerMetricsInterceptor(TransactionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    static PlatformTransactionManager instrument(PlatformTransactionManager transactionManager, TransactionMetrics metrics) {
+        ProxyFactory factory = new ProxyFactory(transactionManager); // 대상 클래스의 인터페이스를 모두 구현한다.
+        factory.addAdvice(new TransactionManagerMetricsInterceptor(metrics));
+        return (PlatformTransactionManager) factory.getProxy(transactionManager.getClass().getClassLoader());
+    }
+
+    static boolean isInstrumented(Object bean) {
+        return bean instanceof Advised && Arrays.stream(((Advised) bean).getAdvisors())
+                .anyMatch(advisor -> advisor.getAdvice() instanceof TransactionManagerMetricsInterceptor);
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (invocation.getMethod().getDeclaringClass() != PlatformTransactionManager.class) {
+            return invocation.proceed();
+        }
+        switch (invocation.getMethod().getName()) {
+            case "getTransaction":
+                return getTransaction(invocation);
+            case "commit":
+                return commit(invocation);
+            case "rollback":
+                return rollback(invocation);
+            default:
+                return invocation.proceed();
+        }
+    }
+
+    private Object getTransaction(MethodInvocation invocation) throws Throwable {
+        TransactionDefinition definition = (TransactionDefinition) invocation.getArguments()[0];
+        TransactionDefinition def = (definition != null ? definition : TransactionDefinition.withDefaults());
+        String method = (def.getName() != null ? def.getName() : TransactionMetrics.PROGRAMMATIC);
+        String propagation = PROPAGATION_NAMES[def.getPropagationBehavior()];
+
+        long start = System.nanoTime();
+        TransactionStatus status = (TransactionStatus) invocation.proceed();
+        metrics.recordBegin(method, propagation, System.nanoTime() - start);
+
+        started.put(status, new Started(method, propagation, start, status.isNewTransaction()));
+        return status;
+    }
+
+    private Object commit(MethodInvocation invocation) throws Throwable {
+        TransactionStatus status = (TransactionStatus) invocation.getArguments()[0];
+        // 커밋을 호출해도 rollback-only 가 설정되어 있으면 실제로는 롤백된다.
+        String outcome = status.isRollbackOnly() ? "rollback" : "commit";
+        long start = System.nanoTime();
+        try {
+            return invocation.proceed();
+        } catch (UnexpectedRollbackException e) {
+            outcome = "rollback";
+            throw e;
+        } finally {
+            complete(status, outcome, start);
+        }
+    }
+
+    private Object rollback(MethodInvocation invocation) throws Throwable {
+        TransactionStatus status = (TransactionStatus) invocation.getArguments()[0];
+        long start = System.nanoTime();
+        try {
+            return invocation.proceed();
+        } finally {
+            complete(status, "rollback", start);
+        }
+    }
+
+    private void complete(TransactionStatus status, String outcome, long completionStart) {
+        long end = System.nanoTime();
+        Started begin = started.remove(status);
+        if (begin == null) {
+            return;
+        }
+        metrics.recordCompletion(begin.method, begin.propagation, outcome, end - completionStart);
+        if (begin.newTransaction) {
+            metrics.recordHold(begin.method, end - begin.nanos);
+        }
+    }
+
+    private static class Started {
+        final String method;
+        final String propagation;
+        final long nanos;
+        final boolean newTransaction;
+
+        Started(String method, String propagation, long nanos, boolean newTransaction) {
+            this.method = method;
+            this.propagation = propagation;
+            this.nanos = nanos;
+            this.newTransaction = newTransaction;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package hello.springtx.common;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Transactional 메서드별 트랜잭션 지표
+ *
+ * springtx.tx.begin               트랜잭션 시작(getTransaction)에 걸린 시간 - method, propagation
+ * springtx.tx.completion          커밋/롤백에 걸린 시간 - method, propagation, outcome
+ * springtx.tx.hold                새 물리 트랜잭션이 시작부터 끝날 때까지 커넥션을 잡고 있던 시간 - method
+ * springtx.tx.rollback.decision   예외가 발생했을 때 롤백 규칙의 결정 - method, exception, decision
+ *
+ * MeterRegistry 는 트랜잭션 매니저보다 늦게 만들어질 수 있으므로 처음 기록할 때 가져온다.
+ */
+public class TransactionMetrics {
+
+    static final String PROGRAMMATIC = "programmatic"; // TransactionTemplate 등 이름 없는 트랜잭션
+
+    private final ObjectProvider<MeterRegistry> registryProvider;
+    private volatile MeterRegistry registry;
+
+    // 트랜잭션마다 Timer.builder().register() 를 하지 않도록 태그 조합별 미터를 한 번만 만든다.
+    private final Map<List<String>, Timer> beginTimers = new ConcurrentHashMap<>();
+    private final Map<List<String>, Timer> completionTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> holdTimers = new ConcurrentHashMap<>();
+    private final Map<List<String>, Counter> rollbackDecisionCounters = new ConcurrentHashMap<>();
+
+    public TransactionMetrics(ObjectProvider<MeterRegistry> registryProvider) {
+        this.registryProvider = registryProvider;
+    }
+
+    void recordBegin(String method, String propagation, long nanos) {
+        beginTimers.computeIfAbsent(List.of(method, propagation), key -> Timer.builder("springtx.tx.begin")
+                        .tag("method", method)
+                        .tag("propagation", propagation)
+                        .register(registry()))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void recordCompletion(String method, String propagation, String outcome, long nanos) {
+        completionTimers.computeIfAbsent(List.of(method, propagation, outcome), key -> Timer.builder("springtx.tx.completion")
+                        .tag("method", method)
+                        .tag("propagation", propagation)
+                        .tag("outcome", outcome)
+                        .register(registry()))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void recordHold(String method, long nanos) {
+        holdTimers.computeIfAbsent(method, key -> Timer.builder("springtx.tx.hold")
+                        .tag("method", method)
+                        .register(registry()))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void recordRollbackDecision(String method, Throwable ex, boolean rollback) {
+        String exception = ex.getClass().getName();
+        String decision = rollback ? "rollback" : "commit";
+        rollbackDecisionCounters.computeIfAbsent(List.of(method, exception, decision), key -> Counter.builder("springtx.tx.rollback.decision")
+                        .tag("method", method)
+                        .tag("exception", exception)
+                        .tag("decision", decision)
+                        .register(registry()))
+                .increment();
+    }
+
+    private MeterRegistry registry() {
+        MeterRegistry result = registry;
+        if (result == null) {
+            result = registryProvider.getIfAvailable(() -> Metrics.globalRegistry);
+            registry = result;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,88 @@
+package hello.springtx.common;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.MethodClassKey;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.interceptor.DelegatingTransactionAttribute;
+import org.springframework.transaction.interceptor.TransactionAttribute;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.interceptor.TransactionAttributeSource;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 모든 PlatformTransactionManager 와 TransactionInterceptor(또는 위빙된 트랜잭션 애스펙트)에 트랜잭션 지표 기록을 붙인다.
+ * 기록된 지표는 actuator metrics 엔드포인트와 JMX(metrics 도메인)로 조회할 수 있다.
+ *
+ * 위빙된 AnnotationTransactionAspect 는 aspectOf() 로 얻는 JVM 싱글톤이므로 컨텍스트마다 다시 후처리된다.
+ * 이미 감싼 TransactionAttributeSource 는 원래 source 를 꺼내서 다시 감싼다. - 겹겹이 감싸지 않고 마지막 컨텍스트의 지표에 기록한다.
+ */
+@Configuration
+public class TransactionMetricsConfig {
+
+    // BeanPostProcessor 는 다른 빈보다 먼저 만들어져야 하므로 static 으로 등록한다.
+    @Bean
+    static BeanPostProcessor transactionMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        TransactionMetrics metrics = new TransactionMetrics(meterRegistry);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof PlatformTransactionManager && !TransactionManagerMetricsInterceptor.isInstrumented(bean)) {
+                    return TransactionManagerMetricsInterceptor.instrument((PlatformTransactionManager) bean, metrics);
+                }
+                // 프록시 방식의 TransactionInterceptor, 위빙 방식(springtx.tx.mode=aspectj)의 AnnotationTransactionAspect
+                if (bean instanceof TransactionAspectSupport) {
+                    TransactionAspectSupport interceptor = (TransactionAspectSupport) bean;
+                    TransactionAttributeSource source = interceptor.getTransactionAttributeSource();
+                    if (source instanceof RollbackDecisionRecordingSource) {
+                        source = ((RollbackDecisionRecordingSource) source).source;
+                    }
+                    interceptor.setTransactionAttributeSource(new RollbackDecisionRecordingSource(source, metrics));
+                }
+                return bean;
+            }
+        };
+    }
+
+    // 롤백 규칙(rollbackOn)이 어떤 예외에 대해 롤백/커밋을 결정했는지 기록한다.
+    private static class RollbackDecisionRecordingSource implements TransactionAttributeSource {
+
+        private final TransactionAttributeSource source;
+        private final TransactionMetrics metrics;
+        private final Map<MethodClassKey, TransactionAttribute> cache = new ConcurrentHashMap<>();
+
+        private RollbackDecisionRecordingSource(TransactionAttributeSource source, TransactionMetrics metrics) {
+            this.source = source;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public boolean isCandidateClass(Class<?> targetClass) {
+            return source.isCandidateClass(targetClass);
+        }
+
+        @Override
+        public TransactionAttribute getTransactionAttribute(Method method, Class<?> targetClass) {
+            TransactionAttribute attr = source.getTransactionAttribute(method, targetClass);
+            if (attr == null) {
+                return null;
+            }
+            String methodName = ClassUtils.getQualifiedMethodName(method, targetClass);
+            return cache.computeIfAbsent(new MethodClassKey(method, targetClass), key -> new DelegatingTransactionAttribute(attr) {
+                @Override
+                public boolean rollbackOn(Throwable ex) {
+                    boolean rollback = super.rollbackOn(ex);
+                    metrics.recordRollbackDecision(methodName, ex, rollback);
+                    return rollback;
+                }
+            });
+        }
+    }
+}
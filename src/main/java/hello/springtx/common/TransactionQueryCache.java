@@ -0,0 +1,113 @@
+package hello.springtx.common;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 트랜잭션 범위의 조회 결과 캐시
+ *
+ * JPQL 조회는 영속성 컨텍스트(1차 캐시)를 거치지 않고 매번 DB 에 간다.
+ * 같은 트랜잭션 안에서 같은 쿼리, 같은 파라미터로 다시 조회하면 처음 결과를 돌려준다.
+ *
+ * - 캐시는 현재 트랜잭션에 바인딩되고 커밋/롤백 시 버린다. (실제 트랜잭션 밖의 조회는 캐시하지 않는다)
+ * - REQUIRES_NEW 로 트랜잭션이 보류되면 캐시도 함께 보류되고, 재개되면 다시 바인딩된다.
+ * - 저장소가 저장하면 invalidate(region) 을 호출한다. 현재 트랜잭션과 같은 스레드에서 보류된 바깥 트랜잭션의
+ *   region 결과만 버린다. 다른 스레드의 트랜잭션은 자기 트랜잭션의 스냅샷을 보므로 건드리지 않는다.
+ * - 영속 상태의 엔티티는 캐시하지 않는다. (clear 후에도 남거나, 다른 영속성 컨텍스트로 새어 나간다)
+ *   id 나 값을 캐시하고 엔티티는 em.find 로 다시 꺼낸다.
+ */
+@Slf4j
+@Component
+public class TransactionQueryCache {
+
+    // 보류된 바깥 트랜잭션의 캐시 - 같은 스레드의 안쪽 트랜잭션이 저장하면 함께 무효로 만든다.
+    private final Object suspendedKey = new Object();
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(String region, String query, Object[] parameters, Supplier<T> loader) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return loader.get();
+        }
+
+        Entries entries = currentEntries();
+        List<Object> key = Arrays.asList(query, Arrays.asList(parameters));
+        Map<List<Object>, Object> values = entries.region(region);
+        if (values.containsKey(key)) {
+            log.debug("조회 캐시 hit region={}, parameters={}", region, parameters);
+            return (T) values.get(key);
+        }
+
+        T value = loader.get();
+        values.put(key, value);
+        return value;
+    }
+
+    // region 에 저장이 일어났다. - 이 스레드의 트랜잭션(보류된 바깥 트랜잭션 포함)이 캐시한 region 의 조회 결과는 모두 무효
+    public void invalidate(String region) {
+        Entries entries = (Entries) TransactionSynchronizationManager.getResource(this);
+        if (entries == null) {
+            entries = (Entries) TransactionSynchronizationManager.getResource(suspendedKey);
+        }
+        for (; entries != null; entries = entries.outer) {
+            entries.regions.remove(region);
+        }
+    }
+
+    private Entries currentEntries() {
+        Entries entries = (Entries) TransactionSynchronizationManager.getResource(this);
+        if (entries == null) {
+            Entries bound = new Entries((Entries) TransactionSynchronizationManager.getResource(suspendedKey));
+            TransactionSynchronizationManager.bindResource(this, bound);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void suspend() {
+                    TransactionSynchronizationManager.unbindResource(TransactionQueryCache.this);
+                    rebindSuspended(bound);
+                }
+
+                @Override
+                public void resume() {
+                    rebindSuspended(bound.outer);
+                    TransactionSynchronizationManager.bindResource(TransactionQueryCache.this, bound);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(TransactionQueryCache.this);
+                }
+            });
+            entries = bound;
+        }
+        return entries;
+    }
+
+    private void rebindSuspended(Entries entries) {
+        TransactionSynchronizationManager.unbindResourceIfPossible(suspendedKey);
+        if (entries != null) {
+            TransactionSynchronizationManager.bindResource(suspendedKey, entries);
+        }
+    }
+
+    // 트랜잭션 하나의 캐시 - region -> (쿼리, 파라미터) -> 결과
+    private static class Entries {
+        private final Entries outer;
+        private final Map<String, Map<List<Object>, Object>> regions = new HashMap<>();
+
+        private Entries(Entries outer) {
+            this.outer = outer;
+        }
+
+        private Map<List<Object>, Object> region(String region) {
+            return regions.computeIfAbsent(region, r -> new HashMap<>());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package hello.springtx.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 풀에서 물리 커넥션을 꺼낸 뒤 돌려줄 때까지의 시간을 기록한다.
+ *
+ * springtx.datasource.connection.hold       물리 커넥션을 잡고 있던 시간
+ * springtx.datasource.connection.physical   풀에서 꺼낸 물리 커넥션 수
+ */
+public class ConnectionHoldTimingDataSource extends DelegatingDataSource implements Closeable {
+
+    private final ObjectProvider<MeterRegistry> registryProvider;
+    private volatile Timer hold;
+    private volatile Counter physical;
+
+    public ConnectionHoldTimingDataSource(DataSource targetDataSource, ObjectProvider<MeterRegistry> registryProvider) {
+        super(targetDataSource);
+        this.registryProvider = registryProvider;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return timed(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return timed(super.getConnection(username, password));
+    }
+
+    private Connection timed(Connection target) {
+        long start = System.nanoTime();
+        physicalCounter().increment();
+        AtomicBoolean closed = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("close") && closed.compareAndSet(false, true)) {
+                        holdTimer().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    }
+                    switch (method.getName()) {
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "unwrap":
+                            if (((Class<?>) args[0]).isInstance(target)) {
+                                return target;
+                            }
+                            break;
+                        default:
+                    }
+                    try {
+                        return method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+
+    private Timer holdTimer() {
+        Timer result = hold;
+        if (result == null) {
+            result = Timer.builder("springtx.datasource.connection.hold")
+                    .description("물리 커넥션을 잡고 있던 시간")
+                    .register(registry());
+            hold = result;
+        }
+        return result;
+    }
+
+    private Counter physicalCounter() {
+        Counter result = physical;
+        if (result == null) {
+            result = Counter.builder("springtx.datasource.connection.physical")
+                    .description("풀에서 꺼낸 물리 커넥션 수")
+                    .register(registry());
+            physical = result;
+        }
+        return result;
+    }
+
+    // 감싼 풀(replica 라우팅 등)을 닫는다.
+    @Override
+    public void close() throws IOException {
+        if (getTargetDataSource() instanceof Closeable) {
+            ((Closeable) getTargetDataSource()).close();
+        }
+    }
+
+    // MeterRegistry 는 DataSource 보다 늦게 만들어질 수 있으므로 처음 기록할 때 가져온다.
+    MeterRegistry registry() {
+        return registryProvider.getIfAvailable(() -> Metrics.globalRegistry);
+    }
+}
@@ -0,0 +1,19 @@
+package hello.springtx.datasource;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.Ordered;
+
+/**
+ * 스프링 부트가 만든 DataSource 빈을 다른 DataSource 로 바꾸는 후처리 (replica, starvation, shard)
+ *
+ * Ordered 이므로 순서가 없는 후처리보다 먼저 적용된다.
+ * LazyConnectionConfig 는 순서 없이 등록되어 바뀐 DataSource 를 마지막에 감싼다.
+ * (@Bean 메서드의 반환 타입으로 순서를 판단하므로 BeanPostProcessor 가 아니라 이 타입으로 반환해야 한다)
+ */
+abstract class DataSourceReplacingPostProcessor implements BeanPostProcessor, Ordered {
+
+    @Override
+    public int getOrder() {
+        return Ordered.LOWEST_PRECEDENCE;
+    }
+}
@@ -0,0 +1,102 @@
+package hello.springtx.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * springtx.datasource.connection.hold-metrics=true 이면 DataSource 빈에 커넥션 점유 시간 기록을 붙이고,
+ * springtx.datasource.lazy-connection=true 이면 LazyConnectionDataSourceProxy 로 감싼다. (지연 프록시를 쓰면 기록도 붙인다)
+ * 둘 다 꺼져 있으면 DataSource 를 건드리지 않는다.
+ *
+ * JpaTransactionManager 는 트랜잭션을 시작할 때 setAutoCommit(false) 를 위해 커넥션을 바로 가져온다.
+ * 지연 프록시는 setAutoCommit/setReadOnly 를 기억만 해 두고 첫 SQL 을 실행할 때 풀에서 커넥션을 꺼낸다.
+ * SQL 없이 끝나는 트랜잭션(검증 실패, flush 전에 던진 예외로 롤백)은 풀을 건드리지 않는다.
+ *
+ * springtx.datasource.connection.logical    트랜잭션/세션이 요청한 커넥션 수 (지연 프록시 사용 시)
+ * logical - physical 이 풀에서 꺼내지 않은 커넥션 수, springtx.datasource.connection.hold 로 점유 시간을 비교한다.
+ *
+ * EntityManagerFactory 가 아니라 dataSource 빈 자체를 바꾼다. JpaTransactionManager 는 EntityManagerFactory 의 DataSource 를
+ * 키로 커넥션을 바인딩하므로, 같은 빈을 쓰는 JdbcTemplate/DataSourceUtils 가 @Transactional 안에서 같은 커넥션을 쓴다.
+ * 다른 DataSource 후처리(replica, starvation, shard)는 Ordered 라서 먼저 끝나고, 바뀐 DataSource 를 감싼다.
+ */
+@Slf4j
+@Configuration
+public class LazyConnectionConfig {
+
+    // BeanPostProcessor 는 다른 빈보다 먼저 만들어져야 하므로 static 으로 등록한다.
+    @Bean
+    static BeanPostProcessor lazyConnectionPostProcessor(Environment environment, ObjectProvider<MeterRegistry> meterRegistry) {
+        Binder binder = Binder.get(environment);
+        boolean lazy = binder.bind("springtx.datasource.lazy-connection", Boolean.class).orElse(false);
+        boolean holdMetrics = binder.bind("springtx.datasource.connection.hold-metrics", Boolean.class).orElse(false);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(lazy || holdMetrics)
+                        || !PoolStarvationGuardConfig.PRIMARY_DATA_SOURCE.equals(beanName) || !(bean instanceof DataSource)) {
+                    return bean;
+                }
+                DataSource dataSource = (DataSource) bean;
+                if (dataSource instanceof LazyConnectionDataSourceProxy) {
+                    // replica 라우팅이 이미 지연 프록시를 쓴다.
+                    LazyConnectionDataSourceProxy proxy = (LazyConnectionDataSourceProxy) dataSource;
+                    proxy.setTargetDataSource(new ConnectionHoldTimingDataSource(proxy.getTargetDataSource(), meterRegistry));
+                    return proxy;
+                }
+                ConnectionHoldTimingDataSource timing = new ConnectionHoldTimingDataSource(dataSource, meterRegistry);
+                if (!lazy) {
+                    return timing;
+                }
+                log.info("JPA 트랜잭션은 첫 SQL 을 실행할 때 커넥션을 가져옵니다. (springtx.datasource.lazy-connection)");
+                return new CountingLazyConnectionDataSourceProxy(timing, meterRegistry);
+            }
+        };
+    }
+
+    // 원래 DataSource 빈을 대신하므로 종료 시 감싼 풀을 닫는다.
+    static class CountingLazyConnectionDataSourceProxy extends LazyConnectionDataSourceProxy implements Closeable {
+
+        private final ObjectProvider<MeterRegistry> registryProvider;
+        private volatile Counter logical;
+
+        CountingLazyConnectionDataSourceProxy(DataSource targetDataSource, ObjectProvider<MeterRegistry> registryProvider) {
+            super(targetDataSource);
+            this.registryProvider = registryProvider;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            Counter counter = logical;
+            if (counter == null) {
+                counter = Counter.builder("springtx.datasource.connection.logical")
+                        .description("트랜잭션/세션이 요청한 커넥션 수")
+                        .register(registryProvider.getIfAvailable(() -> Metrics.globalRegistry));
+                logical = counter;
+            }
+            counter.increment();
+            return super.getConnection();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (obtainTargetDataSource() instanceof Closeable) {
+                ((Closeable) obtainTargetDataSource()).close();
+            }
+        }
+    }
+}
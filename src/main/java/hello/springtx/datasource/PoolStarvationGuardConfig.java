@@ -0,0 +1,73 @@
+package hello.springtx.datasource;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * springtx.datasource.starvation.enabled=true 이면 스프링 부트가 만든 DataSource 를 PoolStarvationGuardDataSource 로 감싼다.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "springtx.datasource.starvation.enabled", havingValue = "true")
+public class PoolStarvationGuardConfig {
+
+    static final String PRIMARY_DATA_SOURCE = "dataSource";
+
+    // BeanPostProcessor 는 다른 빈보다 먼저 만들어져야 하므로 static 으로 등록한다.
+    @Bean
+    static DataSourceReplacingPostProcessor poolStarvationGuardPostProcessor(Environment environment) {
+        return new DataSourceReplacingPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // 스프링 부트가 만든 주 DataSource 만 감싼다. (다른 HikariDataSource 빈마다 예비 풀이 생기지 않도록)
+                if (!PRIMARY_DATA_SOURCE.equals(beanName) || !(bean instanceof HikariDataSource)) {
+                    return bean;
+                }
+                PoolStarvationProperties properties = Binder.get(environment)
+                        .bindOrCreate("springtx.datasource.starvation", PoolStarvationProperties.class);
+                return new PoolStarvationGuardDataSource((HikariDataSource) bean,
+                        createReserve((HikariDataSource) bean, properties.getReservePoolSize()));
+            }
+        };
+    }
+
+    @Bean
+    MeterBinder poolStarvationMetrics(DataSource dataSource) throws SQLException {
+        PoolStarvationGuardDataSource guard = dataSource.unwrap(PoolStarvationGuardDataSource.class);
+        return registry -> {
+            Gauge.builder("springtx.datasource.starvation.waiting", guard, PoolStarvationGuardDataSource::getWaitingWhileHolding)
+                    .description("커넥션을 잡은 채로 주 풀에서 커넥션을 하나 더 기다리는 스레드 수")
+                    .register(registry);
+            Gauge.builder("springtx.datasource.starvation.waiting.peak", guard, PoolStarvationGuardDataSource::getPeakWaitingWhileHolding)
+                    .register(registry);
+            Gauge.builder("springtx.datasource.starvation.reserve.acquisitions", guard, PoolStarvationGuardDataSource::getReserveAcquisitions)
+                    .register(registry);
+        };
+    }
+
+    private static DataSource createReserve(HikariDataSource primary, int reservePoolSize) {
+        if (reservePoolSize <= 0) {
+            log.info("예비 커넥션 풀 없이 커넥션 풀 고갈 감지만 합니다.");
+            return null;
+        }
+
+        HikariConfig config = new HikariConfig();
+        primary.copyStateTo(config);
+        config.setPoolName("springtx-reserve");
+        config.setMaximumPoolSize(reservePoolSize);
+        config.setMinimumIdle(0);
+        log.info("REQUIRES_NEW 용 예비 커넥션 풀 생성. size={}", reservePoolSize);
+        return new HikariDataSource(config);
+    }
+}
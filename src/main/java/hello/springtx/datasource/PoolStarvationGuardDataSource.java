@@ -0,0 +1,112 @@
+package hello.springtx.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 스레드마다 잡고 있는 커넥션 수를 세서, 커넥션을 잡은 채로 커넥션을 하나 더 기다리는 스레드를 감지한다.
+ *
+ * joinV1/joinV2 는 외부 트랜잭션이 커넥션을 잡은 상태에서 LogRepository.save(REQUIRES_NEW)가 커넥션을 하나 더 요청한다.
+ * 동시 요청 수가 풀 크기에 이르면 모든 스레드가 서로 커넥션이 반납되기를 기다리며 멈춘다. (connection-timeout 까지)
+ * 예비 풀이 있으면 두 번째 커넥션은 예비 풀에서 꺼내서 주 풀이 고갈되어도 외부 트랜잭션을 끝낼 수 있게 한다.
+ */
+@Slf4j
+public class PoolStarvationGuardDataSource extends DelegatingDataSource implements Closeable {
+
+    private final DataSource reserve; // null 이면 감지만 한다.
+
+    private final ThreadLocal<AtomicInteger> held = ThreadLocal.withInitial(AtomicInteger::new);
+    private final AtomicInteger waitingWhileHolding = new AtomicInteger();
+    private final AtomicInteger peakWaitingWhileHolding = new AtomicInteger();
+    private final AtomicLong reserveAcquisitions = new AtomicLong();
+
+    public PoolStarvationGuardDataSource(DataSource primary, DataSource reserve) {
+        super(primary);
+        this.reserve = reserve;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return acquire(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return acquire(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    // 이미 커넥션을 잡고 있으면 예비 풀에서 꺼낸다. 예비 풀이 없으면 주 풀에서 기다리는 스레드로 센다.
+    private Connection acquire(ConnectionSource source) throws SQLException {
+        AtomicInteger holdCount = held.get();
+        if (holdCount.get() == 0) {
+            return track(source.getConnection(obtainTargetDataSource()), holdCount);
+        }
+        if (reserve != null) {
+            reserveAcquisitions.incrementAndGet();
+            return track(source.getConnection(reserve), holdCount);
+        }
+
+        peakWaitingWhileHolding.accumulateAndGet(waitingWhileHolding.incrementAndGet(), Math::max);
+        try {
+            return track(source.getConnection(obtainTargetDataSource()), holdCount);
+        } finally {
+            waitingWhileHolding.decrementAndGet();
+        }
+    }
+
+    // 지금 커넥션을 하나 이상 잡은 채로 주 풀에서 커넥션을 하나 더 기다리는 스레드 수 (예비 풀에서 꺼내는 경우는 세지 않는다)
+    public int getWaitingWhileHolding() {
+        return waitingWhileHolding.get();
+    }
+
+    public int getPeakWaitingWhileHolding() {
+        return peakWaitingWhileHolding.get();
+    }
+
+    public long getReserveAcquisitions() {
+        return reserveAcquisitions.get();
+    }
+
+    // 이 빈이 원래 DataSource 빈을 대신하므로 주 풀도 함께 닫는다.
+    @Override
+    public void close() {
+        if (reserve instanceof HikariDataSource) {
+            ((HikariDataSource) reserve).close();
+        }
+        if (getTargetDataSource() instanceof HikariDataSource) {
+            ((HikariDataSource) getTargetDataSource()).close();
+        }
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSource {
+        Connection getConnection(DataSource dataSource) throws SQLException;
+    }
+
+    private Connection track(Connection target, AtomicInteger holdCount) {
+        holdCount.incrementAndGet();
+        AtomicBoolean closed = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("close") && closed.compareAndSet(false, true)) {
+                        holdCount.decrementAndGet();
+                    }
+                    try {
+                        return method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+}
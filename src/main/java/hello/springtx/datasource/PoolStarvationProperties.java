@@ -0,0 +1,20 @@
+package hello.springtx.datasource;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 커넥션 풀 고갈(starvation) 감지/방지 설정
+ */
+@Getter
+@Setter
+@ConfigurationProperties("springtx.datasource.starvation")
+public class PoolStarvationProperties {
+
+    private boolean enabled = false;
+
+    // 이미 커넥션을 잡고 있는 스레드가 커넥션을 하나 더 요청할 때(REQUIRES_NEW 등) 쓰는 예비 풀 크기
+    // 0 이면 예비 풀 없이 감지만 한다.
+    private int reservePoolSize = 0;
+}
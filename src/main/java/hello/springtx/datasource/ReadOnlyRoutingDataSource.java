@@ -0,0 +1,83 @@
+package hello.springtx.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @Transactional(readOnly = true) 트랜잭션은 replica 로, 나머지는 primary 로 커넥션을 요청한다.
+ *
+ * 트랜잭션 매니저는 readOnly 여부를 TransactionSynchronizationManager 에 등록하기 전에 커넥션을 먼저 잡는다.
+ * 그래서 이 DataSource 는 반드시 LazyConnectionDataSourceProxy 로 감싸서, 첫 쿼리를 실행할 때 커넥션을 고르게 해야 한다.
+ */
+public class ReadOnlyRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    private static final String PRIMARY = "primary";
+
+    private final DataSource primary;
+    private final List<HikariDataSource> replicas;
+    private final ReplicaRoutingProperties.Selection selection;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReadOnlyRoutingDataSource(DataSource primary, List<HikariDataSource> replicas, ReplicaRoutingProperties.Selection selection) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.selection = selection;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            targets.put(i, replicas.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (replicas.isEmpty() || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+        return selection == ReplicaRoutingProperties.Selection.LEAST_BUSY ? leastBusy() : roundRobin();
+    }
+
+    private int roundRobin() {
+        return Math.floorMod(next.getAndIncrement(), replicas.size());
+    }
+
+    private int leastBusy() {
+        int selected = 0;
+        int min = Integer.MAX_VALUE;
+        for (int i = 0; i < replicas.size(); i++) {
+            HikariPoolMXBean pool = replicas.get(i).getHikariPoolMXBean(); // 아직 풀이 시작되지 않았으면 null
+            int active = (pool != null ? pool.getActiveConnections() : 0);
+            if (active < min) {
+                min = active;
+                selected = i;
+            }
+        }
+        return selected;
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(HikariDataSource::close);
+        if (primary instanceof Closeable) {
+            try {
+                ((Closeable) primary).close();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package hello.springtx.datasource;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * springtx.datasource.replica.enabled=true 이면 스프링 부트가 만든 DataSource 를
+ * LazyConnectionDataSourceProxy(ReadOnlyRoutingDataSource(primary, replicas)) 로 바꾼다.
+ *
+ * 읽기 전용 트랜잭션에서 Hibernate 는 flush 모드를 MANUAL 로 바꾸고 엔티티를 읽기 전용으로 불러온다.
+ * (HibernateJpaDialect - 스냅샷을 만들지 않으므로 dirty checking 도 하지 않는다)
+ *
+ * 예비 풀(starvation)과 같이 쓸 수 없다. 둘 다 같은 DataSource 빈을 바꾸기 때문이다.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "springtx.datasource.replica.enabled", havingValue = "true")
+public class ReplicaRoutingConfig {
+
+    // BeanPostProcessor 는 다른 빈보다 먼저 만들어져야 하므로 static 으로 등록한다.
+    @Bean
+    static DataSourceReplacingPostProcessor replicaRoutingPostProcessor(Environment environment) {
+        // 예비 풀(starvation)도 같은 DataSource 빈을 바꾸므로 둘 중 어느 것이 적용될지 등록 순서에 따라 달라진다.
+        if (Binder.get(environment).bind("springtx.datasource.starvation.enabled", Boolean.class).orElse(false)) {
+            throw new IllegalStateException("springtx.datasource.replica 는 starvation 설정과 같이 쓸 수 없습니다.");
+        }
+        return new DataSourceReplacingPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!PoolStarvationGuardConfig.PRIMARY_DATA_SOURCE.equals(beanName) || !(bean instanceof HikariDataSource)) {
+                    return bean;
+                }
+                ReplicaRoutingProperties properties = Binder.get(environment)
+                        .bindOrCreate("springtx.datasource.replica", ReplicaRoutingProperties.class);
+                HikariDataSource primary = (HikariDataSource) bean;
+
+                List<HikariDataSource> replicas = new ArrayList<>();
+                for (int i = 0; i < properties.getUrls().size(); i++) {
+                    replicas.add(createReplica(primary, properties, i));
+                }
+                log.info("읽기 전용 트랜잭션을 replica {}개로 보냅니다. selection={}", replicas.size(), properties.getSelection());
+                return new ClosingLazyConnectionDataSourceProxy(
+                        new ReadOnlyRoutingDataSource(primary, replicas, properties.getSelection()));
+            }
+        };
+    }
+
+    private static HikariDataSource createReplica(HikariDataSource primary, ReplicaRoutingProperties properties, int index) {
+        HikariConfig config = new HikariConfig();
+        primary.copyStateTo(config);
+        config.setPoolName("springtx-replica-" + index);
+        config.setJdbcUrl(properties.getUrls().get(index));
+        config.setMaximumPoolSize(properties.getPoolSize());
+        config.setMinimumIdle(0);
+        config.setReadOnly(true);
+        return new HikariDataSource(config);
+    }
+
+    // 원래 DataSource 빈을 대신하므로 종료 시 primary, replica 풀을 모두 닫는다.
+    static class ClosingLazyConnectionDataSourceProxy extends LazyConnectionDataSourceProxy implements Closeable {
+
+        ClosingLazyConnectionDataSourceProxy(ReadOnlyRoutingDataSource target) {
+            super(target);
+        }
+
+        @Override
+        public void close() throws IOException {
+            ((Closeable) obtainTargetDataSource()).close();
+        }
+    }
+}
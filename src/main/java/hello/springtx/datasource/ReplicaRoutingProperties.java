@@ -0,0 +1,28 @@
+package hello.springtx.datasource;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 읽기 전용 트랜잭션을 복제(replica) DB 로 보내는 설정
+ * 사용자/비밀번호 등 나머지 커넥션 풀 설정은 spring.datasource 를 그대로 따른다.
+ */
+@Getter
+@Setter
+@ConfigurationProperties("springtx.datasource.replica")
+public class ReplicaRoutingProperties {
+
+    private boolean enabled = false;
+    private List<String> urls = new ArrayList<>();
+    private int poolSize = 5;
+    private Selection selection = Selection.ROUND_ROBIN;
+
+    public enum Selection {
+        ROUND_ROBIN, // 순서대로 돌아가며 선택
+        LEAST_BUSY // 사용 중인 커넥션이 가장 적은 replica 선택
+    }
+}
@@ -0,0 +1,35 @@
+package hello.springtx.datasource;
+
+/**
+ * 현재 스레드가 사용할 shard 번호 (ShardRoutingDataSource)
+ *
+ * JpaTransactionManager 는 트랜잭션을 시작할 때 커넥션을 가져오므로 shard 는 트랜잭션 밖에서 정해야 한다.
+ * 지정하지 않으면 shard 0 을 사용한다.
+ */
+public abstract class ShardContext {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    public static Integer current() {
+        return CURRENT.get();
+    }
+
+    public static <T, E extends Exception> T call(int shard, ShardCallback<T, E> callback) throws E {
+        Integer previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            return callback.call();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface ShardCallback<T, E extends Exception> {
+        T call() throws E;
+    }
+}
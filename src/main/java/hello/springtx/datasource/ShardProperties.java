@@ -0,0 +1,31 @@
+package hello.springtx.datasource;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 주문 저장소 shard 설정 (ShardRoutingDataSource)
+ * shard 0 은 스프링 부트가 만든 DataSource 이고, 나머지 shard 의 사용자/비밀번호 등은 spring.datasource 를 그대로 따른다.
+ */
+@Getter
+@Setter
+@ConfigurationProperties("springtx.datasource.shard")
+public class ShardProperties {
+
+    private boolean enabled = false;
+
+    // shard 0(기존 DataSource)을 포함한 shard 수
+    private int count = 1;
+
+    // shard 1, 2, ... 의 JDBC URL - 비어 있는 shard 는 인메모리 H2 DB 를 만든다.
+    private List<String> urls = new ArrayList<>();
+
+    private int poolSize = 10;
+
+    // H2 shard 에 shard 0 의 스키마(Hibernate 가 만든 테이블/시퀀스)를 복사한다.
+    private boolean initSchema = true;
+}
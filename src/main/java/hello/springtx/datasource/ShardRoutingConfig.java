@@ -0,0 +1,159 @@
+package hello.springtx.datasource;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import hello.springtx.common.PooledSequenceGenerator;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * springtx.datasource.shard.enabled=true 이면 스프링 부트가 만든 DataSource(빈 이름 dataSource) 를 shard 0 으로 하는 ShardRoutingDataSource 로 바꾼다.
+ *
+ * Hibernate 는 shard 0 에만 스키마를 만든다. H2 shard 에는 EntityManagerFactory 를 만든 직후 shard 0 의 스키마를 복사하고,
+ * 시퀀스를 shard 번호 << 40 부터 시작하게 해서 shard 가 달라도 id 가 겹치지 않게 한다.
+ * (id 생성기가 시퀀스 구간을 메모리에 들고 있으므로 id 만 보고 shard 를 알 수는 없다 - id 조회는 모든 shard 에 묻는다)
+ *
+ * shard 1~N 의 풀은 스프링 부트가 모르는 풀이므로 hikaricp.* 지표(pool=springtx-shard-N)를 직접 연결한다.
+ *
+ * replica 라우팅, 예비 풀(starvation)과 같이 쓸 수 없다. 모두 같은 DataSource 를 바꾸기 때문이다.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "springtx.datasource.shard.enabled", havingValue = "true")
+public class ShardRoutingConfig {
+
+    static final int SEQUENCE_SHARD_SHIFT = 40;
+
+    // BeanPostProcessor 는 다른 빈보다 먼저 만들어져야 하므로 static 으로 등록한다.
+    @Bean
+    static DataSourceReplacingPostProcessor shardRoutingPostProcessor(Environment environment) {
+        Binder binder = Binder.get(environment);
+        ShardProperties properties = binder.bindOrCreate("springtx.datasource.shard", ShardProperties.class);
+        if (binder.bind("springtx.datasource.replica.enabled", Boolean.class).orElse(false)
+                || binder.bind("springtx.datasource.starvation.enabled", Boolean.class).orElse(false)) {
+            throw new IllegalStateException("springtx.datasource.shard 는 replica, starvation 설정과 같이 쓸 수 없습니다.");
+        }
+        return new DataSourceReplacingPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (PoolStarvationGuardConfig.PRIMARY_DATA_SOURCE.equals(beanName) && bean instanceof HikariDataSource) {
+                    HikariDataSource primary = (HikariDataSource) bean;
+                    List<DataSource> shards = new ArrayList<>();
+                    shards.add(primary);
+                    for (int i = 1; i < properties.getCount(); i++) {
+                        shards.add(createShard(primary, properties, i));
+                    }
+                    log.info("주문을 shard {}개에 나눠 저장합니다.", shards.size());
+                    return new ShardRoutingDataSource(shards);
+                }
+                if (bean instanceof LocalContainerEntityManagerFactoryBean && properties.isInitSchema()) {
+                    initSchema((LocalContainerEntityManagerFactoryBean) bean);
+                }
+                return bean;
+            }
+        };
+    }
+
+    // shard 0 은 스프링 부트가 dataSource 빈을 풀어서(unwrap) 지표를 연결한다.
+    @Bean
+    MeterBinder shardPoolMetrics(DataSource dataSource) throws SQLException {
+        ShardRoutingDataSource routing = dataSource.unwrap(ShardRoutingDataSource.class);
+        return registry -> {
+            for (int i = 1; i < routing.getShardCount(); i++) {
+                DataSource shard = routing.getShard(i);
+                if (!(shard instanceof HikariDataSource)) {
+                    continue;
+                }
+                HikariDataSource pool = (HikariDataSource) shard;
+                if (pool.getMetricRegistry() == null && pool.getMetricsTrackerFactory() == null) {
+                    pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+                }
+            }
+        };
+    }
+
+    private static HikariDataSource createShard(HikariDataSource primary, ShardProperties properties, int index) {
+        HikariConfig config = new HikariConfig();
+        primary.copyStateTo(config);
+        config.setPoolName("springtx-shard-" + index);
+        config.setJdbcUrl(index - 1 < properties.getUrls().size()
+                ? properties.getUrls().get(index - 1)
+                : "jdbc:h2:mem:springtx-shard-" + index + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        config.setMaximumPoolSize(properties.getPoolSize());
+        return new HikariDataSource(config);
+    }
+
+    private static void initSchema(LocalContainerEntityManagerFactoryBean factory) {
+        factory.getNativeEntityManagerFactory(); // 백그라운드에서 만드는 중이면 스키마가 만들어질 때까지 기다린다.
+        try {
+            DataSource dataSource = factory.getDataSource();
+            if (dataSource == null || !dataSource.isWrapperFor(ShardRoutingDataSource.class)) {
+                return;
+            }
+            ShardRoutingDataSource routing = dataSource.unwrap(ShardRoutingDataSource.class);
+            List<String> schema = null;
+            for (int i = 1; i < routing.getShardCount(); i++) {
+                DataSource shard = routing.getShard(i);
+                if (!isH2(shard)) {
+                    log.info("shard {} 는 H2 가 아니므로 스키마를 복사하지 않습니다.", i);
+                    continue;
+                }
+                if (schema == null) {
+                    schema = exportSchema(routing.getShard(0));
+                }
+                importSchema(shard, schema, i);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("shard 스키마를 만들지 못했습니다.", e);
+        }
+    }
+
+    private static boolean isH2(DataSource dataSource) {
+        return dataSource instanceof HikariDataSource && ((HikariDataSource) dataSource).getJdbcUrl().startsWith("jdbc:h2:");
+    }
+
+    // H2 SCRIPT 문 - 데이터 없이 CREATE 문만 만든다.
+    private static List<String> exportSchema(DataSource primary) throws SQLException {
+        List<String> statements = new ArrayList<>();
+        try (Connection connection = primary.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SCRIPT NODATA NOPASSWORDS NOSETTINGS")) {
+            while (rs.next()) {
+                String sql = rs.getString(1);
+                if (sql.startsWith("--") || sql.startsWith("CREATE USER")) {
+                    continue;
+                }
+                statements.add(sql);
+            }
+        }
+        return statements;
+    }
+
+    private static void importSchema(DataSource shard, List<String> schema, int index) throws SQLException {
+        try (Connection connection = shard.getConnection();
+             Statement statement = connection.createStatement()) {
+            for (String sql : schema) {
+                statement.execute(sql);
+            }
+            statement.execute("ALTER SEQUENCE " + PooledSequenceGenerator.SEQUENCE_NAME
+                    + " RESTART WITH " + (((long) index << SEQUENCE_SHARD_SHIFT) + 1));
+        }
+        log.info("shard {} 스키마를 만들었습니다. statements={}", index, schema.size());
+    }
+}
@@ -0,0 +1,70 @@
+package hello.springtx.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ShardContext 에 지정된 shard 로 커넥션을 요청한다. 지정하지 않으면 shard 0 (기존 DataSource)
+ *
+ * 주문 외의 엔티티(Member, Log 등)는 shard 를 지정하지 않으므로 항상 shard 0 에 저장된다.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    private final List<DataSource> shards;
+
+    public ShardRoutingDataSource(List<DataSource> shards) {
+        this.shards = shards;
+
+        Map<Object, Object> targets = new HashMap<>();
+        for (int i = 0; i < shards.size(); i++) {
+            targets.put(i, shards.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(shards.get(0));
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Integer shard = ShardContext.current();
+        if (shard == null) {
+            return 0;
+        }
+        if (shard < 0 || shard >= shards.size()) {
+            throw new IllegalStateException("없는 shard 입니다. shard=" + shard + ", count=" + shards.size());
+        }
+        return shard;
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    public DataSource getShard(int shard) {
+        return shards.get(shard);
+    }
+
+    @Override
+    public void close() {
+        for (int i = shards.size() - 1; i >= 0; i--) {
+            DataSource shard = shards.get(i);
+            if (shard instanceof HikariDataSource) {
+                ((HikariDataSource) shard).close();
+            } else if (shard instanceof Closeable) {
+                try {
+                    ((Closeable) shard).close();
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+    }
+}
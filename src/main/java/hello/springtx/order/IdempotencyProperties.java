@@ -0,0 +1,16 @@
+package hello.springtx.order;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 주문 중복 제출 방지 설정
+ */
+@Getter
+@Setter
+@ConfigurationProperties("springtx.order.idempotency")
+public class IdempotencyProperties {
+
+    private int cacheSize = 10_000; // 메모리에 기억해 둘 최근 주문 요청 키 수
+}
@@ -0,0 +1,94 @@
+package hello.springtx.order;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+/**
+ * 주문 요청 키(idempotencyKey)로 중복 제출을 막는다.
+ * 타임아웃 후 클라이언트가 재시도해도 주문과 결제는 한 번만 처리하고, 처음 주문의 결과를 그대로 돌려준다.
+ *
+ * 1. 최근 키 캐시(LRU) 확인 - 트랜잭션 없음
+ * 2. orders.idempotency_key 조회 - 읽기 전용 트랜잭션
+ * 3. 처음 들어온 키면 OrderService.order 호출 (OrderService 의 @Transactional 이 적용되도록 다른 빈에서 호출한다)
+ *
+ * 같은 키가 동시에 들어오면 OrderService 가 결제 전에 주문을 insert 하므로 나중 요청은 unique 인덱스에 걸려 결제하지 않고 실패한다.
+ * 먼저 커밋된 주문이 있으면 그 결과를 돌려주고, 아직 처리 중이면 예외를 그대로 던진다. (클라이언트가 다시 시도한다)
+ *
+ * shard 를 쓰면 조회와 주문 모두 username 의 shard 에서 한다. (ShardedOrderService.callInShardOf)
+ *
+ * 캐시에는 "완료" 만 기억한다. "대기" 는 PendingOrderReprocessor 가 나중에 "완료" 로 바꿀 수 있으므로 매번 DB 에서 읽는다.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class IdempotentOrderService {
+
+    private final OrderService orderService;
+    private final OrderRepository orderRepository;
+    private final OrderIdempotencyCache cache;
+    private final ShardedOrderService shardedOrderService;
+
+    public void order(String idempotencyKey, Order order) throws NotEnoughMoneyException {
+        shardedOrderService.callInShardOf(order.getUsername(), () -> {
+            orderInShard(idempotencyKey, order);
+            return null;
+        });
+    }
+
+    private void orderInShard(String idempotencyKey, Order order) throws NotEnoughMoneyException {
+        OrderIdempotencyCache.Receipt receipt = findReceipt(idempotencyKey);
+        if (receipt != null) {
+            log.info("이미 처리된 주문 요청. idempotencyKey={}, orderId={}", idempotencyKey, receipt.getOrderId());
+            replay(receipt, idempotencyKey, order);
+            return;
+        }
+
+        order.setIdempotencyKey(idempotencyKey);
+        try {
+            orderService.order(order);
+            remember(idempotencyKey, OrderIdempotencyCache.Receipt.of(order));
+        } catch (DataIntegrityViolationException e) {
+            log.info("같은 주문 요청이 먼저 들어왔다. idempotencyKey={}", idempotencyKey);
+            OrderIdempotencyCache.Receipt committed = orderRepository.findByIdempotencyKey(idempotencyKey)
+                    .map(OrderIdempotencyCache.Receipt::of)
+                    .orElseThrow(() -> e); // 먼저 들어온 요청이 아직 커밋하지 않았다.
+            remember(idempotencyKey, committed);
+            replay(committed, idempotencyKey, order);
+        }
+        // 잔고 부족(체크 예외)은 "대기" 로 커밋되었지만 나중에 바뀔 수 있으므로 기억하지 않는다.
+        // 시스템 예외(언체크)는 롤백되어 아무것도 남지 않았으므로 기억하지 않는다. - 재시도하면 다시 처리한다.
+    }
+
+    private OrderIdempotencyCache.Receipt findReceipt(String idempotencyKey) {
+        OrderIdempotencyCache.Receipt receipt = cache.get(idempotencyKey);
+        if (receipt != null) {
+            return receipt;
+        }
+        receipt = orderRepository.findByIdempotencyKey(idempotencyKey)
+                .map(OrderIdempotencyCache.Receipt::of)
+                .orElse(null);
+        if (receipt != null) {
+            remember(idempotencyKey, receipt);
+        }
+        return receipt;
+    }
+
+    // 더 바뀌지 않는 결과("완료")만 캐시에 기억한다.
+    private void remember(String idempotencyKey, OrderIdempotencyCache.Receipt receipt) {
+        if (PayStatusConverter.COMPLETED.equals(receipt.getPayStatus())) {
+            cache.put(idempotencyKey, receipt);
+        }
+    }
+
+    // 처음 주문의 결과를 그대로 돌려준다. 처음 주문이 잔고 부족이었으면 같은 예외를 던진다.
+    private void replay(OrderIdempotencyCache.Receipt receipt, String idempotencyKey, Order order) throws NotEnoughMoneyException {
+        order.setId(receipt.getOrderId());
+        order.setPayStatus(receipt.getPayStatus());
+        order.setIdempotencyKey(idempotencyKey);
+        if ("대기".equals(receipt.getPayStatus())) {
+            throw new NotEnoughMoneyException("잔고가 부족합니다.");
+        }
+    }
+}
@@ -1,24 +1,45 @@
 package hello.springtx.order;
 
+import hello.springtx.common.PooledSequenceGenerator;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.GenericGenerator;
 
+import javax.persistence.Column;
+import javax.persistence.Convert;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.Table;
+import javax.persistence.Version;
 
 @Entity
-@Table(name = "orders")
+@DynamicUpdate // 변경된 컬럼만 update 한다.
+@Table(name = "orders", indexes = {
+        @Index(name = "uk_orders_idempotency_key", columnList = "idempotency_key", unique = true),
+        @Index(name = "idx_orders_pay_status_id", columnList = "pay_status, id") // 대기 주문 재처리 (PendingOrderReprocessor)
+})
 @Getter
 @Setter
 public class Order {
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = PooledSequenceGenerator.NAME)
+    @GenericGenerator(name = PooledSequenceGenerator.NAME, strategy = PooledSequenceGenerator.STRATEGY)
     private Long id;
 
     private String username; // 정상, 예외, 잔고부족
-    private String payStatus; // 대기, 완료
+
+    @Convert(converter = PayStatusConverter.class)
+    @Column(name = "pay_status", length = 1)
+    private String payStatus; // 대기, 완료 - DB 에는 P, C 로 저장한다.
+
+    @Column(name = "idempotency_key")
+    private String idempotencyKey; // 클라이언트가 재시도해도 같은 값을 보내는 주문 요청 키 (없어도 된다)
+
+    @Version
+    private Long version; // 낙관적 락 - 동시에 수정하면 나중에 커밋하는 쪽이 실패한다.
 
 }
@@ -0,0 +1,96 @@
+package hello.springtx.order;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+/**
+ * payStatus 별 주문을 CSV 파일로 내보낸다. (야간 내보내기)
+ * 주문을 한 건씩 읽어서 바로 파일에 쓰므로 테이블 크기와 상관없이 메모리 사용량이 일정하다.
+ * shard 를 쓰면 shard 0 부터 차례로 shard 마다 읽기 전용 트랜잭션 하나로 읽어서 같은 파일에 이어 쓴다.
+ */
+@Slf4j
+@Component
+public class OrderCsvExporter {
+
+    static final String HEADER = "id,username,pay_status,idempotency_key";
+
+    private final OrderRepository orderRepository;
+    private final OrderExportProperties properties;
+    private final ShardedOrderService shardedOrderService;
+    private final TransactionTemplate readOnlyTxTemplate;
+
+    public OrderCsvExporter(OrderRepository orderRepository, OrderExportProperties properties,
+                            ShardedOrderService shardedOrderService, PlatformTransactionManager txManager) {
+        this.orderRepository = orderRepository;
+        this.properties = properties;
+        this.shardedOrderService = shardedOrderService;
+        this.readOnlyTxTemplate = new TransactionTemplate(txManager);
+        this.readOnlyTxTemplate.setReadOnly(true);
+    }
+
+    // shard 마다 읽기 전용 트랜잭션 하나로 커서를 끝까지 읽는다. (replica 라우팅을 켜면 replica 에서 읽는다)
+    public long export(String payStatus, Path file) throws IOException {
+        long rows = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.write('\n');
+            for (int shard = 0; shard < shardedOrderService.getShardCount(); shard++) {
+                rows += shardedOrderService.callInShard(shard, () -> exportShard(payStatus, writer));
+            }
+        }
+        log.info("주문 내보내기 완료 payStatus={}, rows={}, file={}", payStatus, rows, file);
+        return rows;
+    }
+
+    private long exportShard(String payStatus, Writer writer) throws IOException {
+        try {
+            return readOnlyTxTemplate.execute(status -> {
+                long rows = 0;
+                try (Stream<Order> orders = orderRepository.streamByPayStatus(payStatus, properties.getFetchSize())) {
+                    for (Order order : (Iterable<Order>) orders::iterator) {
+                        writeRow(writer, order);
+                        rows++;
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return rows;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void writeRow(Writer writer, Order order) throws IOException {
+        writer.write(String.valueOf(order.getId()));
+        writer.write(',');
+        writer.write(escape(order.getUsername()));
+        writer.write(',');
+        writer.write(escape(order.getPayStatus()));
+        writer.write(',');
+        writer.write(escape(order.getIdempotencyKey()));
+        writer.write('\n');
+    }
+
+    // RFC 4180 - 쉼표, 따옴표, 줄바꿈이 있으면 따옴표로 감싼다.
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
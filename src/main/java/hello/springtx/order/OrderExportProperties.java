@@ -0,0 +1,17 @@
+package hello.springtx.order;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 주문 내보내기 설정
+ */
+@Getter
+@Setter
+@ConfigurationProperties("springtx.order.export")
+public class OrderExportProperties {
+
+    // JDBC 커서에서 한 번에 가져올 행 수 - 메모리 사용량과 DB 왕복 횟수를 맞바꾼다.
+    private int fetchSize = 1000;
+}
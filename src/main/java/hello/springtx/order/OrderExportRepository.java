@@ -0,0 +1,16 @@
+package hello.springtx.order;
+
+import java.util.stream.Stream;
+
+/**
+ * OrderRepository 에 붙이는 대량 조회 기능 (구현: OrderExportRepositoryImpl)
+ */
+public interface OrderExportRepository {
+
+    /**
+     * payStatus 가 같은 주문을 id 순서로 한 건씩 흘려 보낸다.
+     * JDBC 커서에서 fetchSize 건씩 가져오고, 각 주문은 읽기 전용으로 불러온 뒤 바로 영속성 컨텍스트에서 분리한다.
+     * 트랜잭션 안에서 호출하고, 다 쓰면 닫아야 한다. (try-with-resources)
+     */
+    Stream<Order> streamByPayStatus(String payStatus, int fetchSize);
+}
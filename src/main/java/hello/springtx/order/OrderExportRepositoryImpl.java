@@ -0,0 +1,28 @@
+package hello.springtx.order;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import java.util.stream.Stream;
+
+@RequiredArgsConstructor
+public class OrderExportRepositoryImpl implements OrderExportRepository {
+
+    private final EntityManager em;
+
+    @Override
+    public Stream<Order> streamByPayStatus(String payStatus, int fetchSize) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalTransactionStateException("스트리밍 조회는 트랜잭션 안에서만 사용할 수 있다. (커서가 커넥션에 묶여 있다)");
+        }
+        return em.createQuery("select o from Order o where o.payStatus = :payStatus order by o.id", Order.class)
+                .setParameter("payStatus", payStatus)
+                .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(QueryHints.HINT_READONLY, true) // 스냅샷을 만들지 않는다.
+                .getResultStream()
+                .peek(em::detach); // 영속성 컨텍스트가 커지지 않도록 한 건씩 분리한다.
+    }
+}
@@ -0,0 +1,52 @@
+package hello.springtx.order;
+
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 최근 주문 요청 키 -> 주문 결과 (LRU, 크기 제한)
+ * 캐시에서 밀려난 키는 orders.idempotency_key 로 다시 찾는다.
+ * 더 바뀌지 않는 결과("완료")만 넣는다. (IdempotentOrderService)
+ */
+@Component
+public class OrderIdempotencyCache {
+
+    private final Map<String, Receipt> receipts;
+
+    public OrderIdempotencyCache(IdempotencyProperties properties) {
+        int capacity = properties.getCacheSize();
+        this.receipts = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Receipt> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public synchronized Receipt get(String idempotencyKey) {
+        return receipts.get(idempotencyKey);
+    }
+
+    public synchronized void put(String idempotencyKey, Receipt receipt) {
+        receipts.put(idempotencyKey, receipt);
+    }
+
+    // 커밋된 주문 결과
+    @Getter
+    public static class Receipt {
+        private final Long orderId;
+        private final String payStatus;
+
+        public Receipt(Long orderId, String payStatus) {
+            this.orderId = orderId;
+            this.payStatus = payStatus;
+        }
+
+        static Receipt of(Order order) {
+            return new Receipt(order.getId(), order.getPayStatus());
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package hello.springtx.order;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * OrderService.order 는 결제가 끝날 때까지 트랜잭션(커넥션)을 잡고 있다.
+ * 이 서비스는 주문을 짧은 트랜잭션 두 개로 나누고, 그 사이의 결제는 별도 스레드 풀에서 처리한다.
+ *
+ * 1. 주문을 "대기" 상태로 저장하고 커밋 (호출한 스레드)
+ * 2. 결제 (결제 스레드 풀 - 커넥션을 잡지 않는다)
+ * 3. 정상 승인 : "완료" 로 변경하고 커밋
+ *    잔고부족(체크 예외) : "대기" 그대로 둔다. (OrderService 와 같이 커밋된 상태)
+ *    시스템 예외(언체크) : 저장했던 주문을 삭제한다. (OrderService 의 롤백에 해당하는 보상 처리)
+ *
+ * 결과는 CompletableFuture 로 돌려준다. 실패하면 CompletionException 의 cause 로 원래 예외를 담는다.
+ * 인자로 받은 order 는 저장한 뒤로 건드리지 않는다. (호출한 스레드가 계속 들고 있으므로)
+ * 결제 스레드는 복사본으로 결제하고, "완료" 로 커밋한 주문을 새로 읽어서 돌려준다.
+ * 보상 처리(삭제)마저 실패하면 원래 예외에 suppressed 로 붙인다.
+ * 큐가 가득 차면 호출한 스레드가 결제한다. 종료(@PreDestroy) 후에는 RejectedExecutionException 을 던진다. - 주문은 "대기" 로 남는다.
+ * shard 를 쓰면 세 트랜잭션 모두 username 의 shard 에서 실행한다. (ShardedOrderService.callInShardOf)
+ */
+@Slf4j
+@Service
+public class OrderPipelineService {
+
+    private final OrderRepository orderRepository;
+    private final PaymentGateway paymentGateway;
+    private final ShardedOrderService shardedOrderService;
+    private final TransactionTemplate txTemplate;
+    private final ThreadPoolExecutor paymentExecutor;
+
+    public OrderPipelineService(OrderRepository orderRepository, PaymentGateway paymentGateway, ShardedOrderService shardedOrderService,
+                                PlatformTransactionManager txManager, PaymentProperties properties) {
+        this.orderRepository = orderRepository;
+        this.paymentGateway = paymentGateway;
+        this.shardedOrderService = shardedOrderService;
+        this.txTemplate = new TransactionTemplate(txManager);
+
+        PaymentProperties.Pipeline pipeline = properties.getPipeline();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.paymentExecutor = new ThreadPoolExecutor(pipeline.getThreads(), pipeline.getThreads(), 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(pipeline.getQueueCapacity()),
+                runnable -> new Thread(runnable, "order-payment-" + threadNumber.incrementAndGet()),
+                OrderPipelineService::runInCaller);
+    }
+
+    public CompletableFuture<Order> order(Order order) {
+        log.info("order 호출 - 대기 상태로 저장");
+        order.setPayStatus("대기");
+        shardedOrderService.callInShardOf(order.getUsername(), () -> txTemplate.execute(status -> orderRepository.save(order)));
+
+        Order payment = copyOf(order);
+        return CompletableFuture.supplyAsync(() -> pay(payment), paymentExecutor);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        paymentExecutor.shutdown();
+        paymentExecutor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    // CallerRunsPolicy 는 풀이 종료된 뒤 작업을 조용히 버린다. - supplyAsync 의 future 가 끝나지 않아 join() 이 멈춘다.
+    private static void runInCaller(Runnable task, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("결제 스레드 풀이 종료되었습니다.");
+        }
+        task.run();
+    }
+
+    private Order pay(Order order) {
+        log.info("결제 프로세스 진입");
+        try {
+            paymentGateway.pay(order);
+        } catch (NotEnoughMoneyException e) {
+            // 주문은 이미 "대기" 로 커밋되어 있다.
+            throw new CompletionException(e);
+        } catch (RuntimeException e) {
+            log.info("시스템 예외 - 주문 삭제. orderId={}", order.getId());
+            try {
+                inShard(order, () -> {
+                    orderRepository.deleteById(order.getId());
+                    return null;
+                });
+            } catch (RuntimeException deleteFailure) {
+                log.warn("주문 삭제 실패 - 대기 상태로 남는다. orderId={}", order.getId(), deleteFailure);
+                e.addSuppressed(deleteFailure);
+            }
+            throw new CompletionException(e);
+        }
+
+        Order completed = inShard(order, () -> {
+            Order saved = orderRepository.findById(order.getId())
+                    .orElseThrow(() -> new IllegalStateException("주문이 없습니다. orderId=" + order.getId()));
+            saved.setPayStatus("완료");
+            return saved;
+        });
+
+        log.info("결제 프로세스 완료");
+        return completed;
+    }
+
+    // 주문이 저장된 shard 에서 트랜잭션 하나로 실행한다.
+    private <T> T inShard(Order order, Supplier<T> work) {
+        return shardedOrderService.callInShardOf(order.getUsername(), () -> txTemplate.execute(status -> work.get()));
+    }
+
+    private static Order copyOf(Order order) {
+        Order copy = new Order();
+        copy.setId(order.getId());
+        copy.setUsername(order.getUsername());
+        copy.setPayStatus(order.getPayStatus());
+        copy.setIdempotencyKey(order.getIdempotencyKey());
+        copy.setVersion(order.getVersion());
+        return copy;
+    }
+}
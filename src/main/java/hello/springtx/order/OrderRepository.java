@@ -1,6 +1,24 @@
 package hello.springtx.order;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
-public interface OrderRepository extends JpaRepository<Order, Long> {
+import java.util.List;
+import java.util.Optional;
+
+public interface OrderRepository extends JpaRepository<Order, Long>, OrderExportRepository {
+
+    @Transactional(readOnly = true)
+    Optional<Order> findByIdempotencyKey(String idempotencyKey);
+
+    @Transactional(readOnly = true)
+    long countByPayStatus(String payStatus);
+
+    // 키셋 페이지 - afterId 다음부터 id 순서로 (pay_status, id) 인덱스만 읽는다. (offset 을 쓰지 않는다)
+    @Transactional(readOnly = true)
+    @Query("select o.id from Order o where o.payStatus = :payStatus and o.id > :afterId order by o.id")
+    List<Long> findIdsByPayStatusAfter(@Param("payStatus") String payStatus, @Param("afterId") long afterId, Pageable page);
 }
@@ -1,39 +1,75 @@
 package hello.springtx.order;
 
-import lombok.RequiredArgsConstructor;
+import hello.springtx.common.RetryOnOptimisticLock;
+import hello.springtx.datasource.ShardContext;
+import hello.springtx.datasource.ShardRoutingDataSource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * shard 를 쓰면(shard 2개 이상) ShardedOrderService 로 shard 를 정한 뒤 호출해야 한다.
+ * 정하지 않고 호출하면 username 과 상관없이 shard 0 에 저장되므로 바로 실패한다.
+ */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class OrderService {
 
     private final OrderRepository orderRepository;
+    private final PaymentGateway paymentGateway;
+    private final boolean sharded;
+
+    public OrderService(OrderRepository orderRepository, PaymentGateway paymentGateway, DataSource dataSource) throws SQLException {
+        this.orderRepository = orderRepository;
+        this.paymentGateway = paymentGateway;
+        this.sharded = dataSource.isWrapperFor(ShardRoutingDataSource.class)
+                && dataSource.unwrap(ShardRoutingDataSource.class).getShardCount() > 1;
+    }
 
     // JPA는 트랜잭션 커밋 시점에 Order 데이터를 DB에 반영한다.
     @Transactional
     public void order(Order order) throws NotEnoughMoneyException {
         log.info("order 호출");
+        requireShard();
 
         orderRepository.save(order);
+        if (order.getIdempotencyKey() != null) {
+            // 결제하기 전에 insert 해서 요청 키(unique 인덱스)를 먼저 선점한다. - 같은 키의 다른 요청은 여기서 실패하고 결제하지 않는다.
+            orderRepository.flush();
+        }
 
         log.info("결제 프로세스 진입");
 
-        if (order.getUsername().equals("예외")) {
-            log.info("시스템 예외 발생");
-            throw new RuntimeException("시스템 예외"); // 시스템 예외는 언체크 예외를 던진다. - 롤백함
-        } else if (order.getUsername().equals("잔고부족")) {
-            log.info("잔고 부족 비즈니스 예외 발생");
+        try {
+            paymentGateway.pay(order); // 시스템 예외(언체크)는 그대로 던진다. - 롤백함
+        } catch (NotEnoughMoneyException e) {
             order.setPayStatus("대기");
-            throw new NotEnoughMoneyException("잔고가 부족합니다."); // 잔고가 부족하면 체크 예외를 던진다. (NotEnoughMoneyException 는 Exception 을 extends 했다.) - 커밋함
-        } else {
-            // 정상 승인
-            log.info("정상 승인");
-            order.setPayStatus("완료");
+            throw e; // 잔고가 부족하면 체크 예외를 던진다. (NotEnoughMoneyException 는 Exception 을 extends 했다.) - 커밋함
         }
 
+        // 정상 승인
+        order.setPayStatus("완료");
+
         log.info("결제 프로세스 완료");
     }
+
+    // 결제 상태 변경 - 다른 요청이 먼저 바꿨으면(버전 충돌) 최신 주문을 다시 읽어서 재시도한다.
+    @RetryOnOptimisticLock
+    @Transactional
+    public Order updatePayStatus(Long orderId, String payStatus) {
+        requireShard();
+        Order order = orderRepository.findById(orderId)
+                .orElseThrow(() -> new IllegalArgumentException("주문이 없습니다. orderId=" + orderId));
+        order.setPayStatus(payStatus);
+        return order;
+    }
+
+    private void requireShard() {
+        if (sharded && ShardContext.current() == null) {
+            throw new IllegalStateException("shard 가 정해지지 않았습니다. ShardedOrderService 로 호출하세요.");
+        }
+    }
 }
@@ -0,0 +1,47 @@
+package hello.springtx.order;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+/**
+ * 결제 상태 - 자바에서는 "대기", "완료" 문자열로 쓰고, DB 에는 한 글자 코드로 저장한다.
+ * (pay_status, id) 인덱스가 작아지고, 정해진 상태 외의 값은 저장할 수 없다.
+ *
+ * JPQL 파라미터(o.payStatus = :payStatus)에도 같은 변환이 적용되므로 조회할 때도 "대기" 로 찾는다.
+ */
+@Converter
+public class PayStatusConverter implements AttributeConverter<String, String> {
+
+    public static final String PENDING = "대기";
+    public static final String COMPLETED = "완료";
+
+    @Override
+    public String convertToDatabaseColumn(String payStatus) {
+        if (payStatus == null) {
+            return null;
+        }
+        switch (payStatus) {
+            case PENDING:
+                return "P";
+            case COMPLETED:
+                return "C";
+            default:
+                throw new IllegalArgumentException("알 수 없는 결제 상태: " + payStatus);
+        }
+    }
+
+    @Override
+    public String convertToEntityAttribute(String code) {
+        if (code == null) {
+            return null;
+        }
+        switch (code) {
+            case "P":
+                return PENDING;
+            case "C":
+                return COMPLETED;
+            default:
+                throw new IllegalArgumentException("알 수 없는 결제 상태 코드: " + code);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package hello.springtx.order;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * 결제 프로세스 - username 으로 결제 결과를 흉내낸다.
+ * 정상 : 승인, 예외 : 시스템 예외(언체크), 잔고부족 : 비즈니스 예외(체크)
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PaymentGateway {
+
+    // 이 스레드에서는 응답 시간을 흉내내지 않는다. (TransactionalWarmup)
+    private static final ThreadLocal<Boolean> NO_LATENCY = new ThreadLocal<>();
+
+    private final PaymentProperties properties;
+
+    // 현재 스레드에서 work 를 실행하는 동안만 결제 응답 시간을 0 으로 둔다. 다른 스레드의 결제는 그대로다.
+    public static <T> T withoutLatency(Supplier<T> work) {
+        NO_LATENCY.set(Boolean.TRUE);
+        try {
+            return work.get();
+        } finally {
+            NO_LATENCY.remove();
+        }
+    }
+
+    public void pay(Order order) throws NotEnoughMoneyException {
+        simulateLatency();
+        approve(order);
+    }
+
+    // ReactiveOrderService 용 - 응답 시간을 스레드를 잡지 않고(Mono.delay) 기다린다.
+    public Mono<Void> payNonBlocking(Order order) {
+        Duration latency = properties.getLatency();
+        Mono<Long> wait = latency.isZero() || latency.isNegative() ? Mono.empty() : Mono.delay(latency);
+        return wait.then(Mono.fromCallable(() -> {
+            approve(order);
+            return order;
+        })).then();
+    }
+
+    private void approve(Order order) throws NotEnoughMoneyException {
+        if (order.getUsername().equals("예외")) {
+            log.info("시스템 예외 발생");
+            throw new RuntimeException("시스템 예외"); // 시스템 예외는 언체크 예외를 던진다.
+        } else if (order.getUsername().equals("잔고부족")) {
+            log.info("잔고 부족 비즈니스 예외 발생");
+            throw new NotEnoughMoneyException("잔고가 부족합니다."); // 잔고가 부족하면 체크 예외를 던진다.
+        }
+
+        log.info("정상 승인");
+    }
+
+    private void simulateLatency() {
+        long millis = properties.getLatency().toMillis();
+        if (millis <= 0 || NO_LATENCY.get() != null) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("결제 중 인터럽트", e);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package hello.springtx.order;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 결제 설정
+ */
+@Getter
+@Setter
+@ConfigurationProperties("springtx.order.payment")
+public class PaymentProperties {
+
+    private Duration latency = Duration.ZERO; // 외부 결제 시스템 응답 시간 흉내 (성능 측정용)
+
+    private Pipeline pipeline = new Pipeline();
+
+    // OrderPipelineService - 결제를 처리하는 스레드 풀
+    @Getter
+    @Setter
+    public static class Pipeline {
+        private int threads = 16;
+        private int queueCapacity = 1000; // 가득 차면 호출한 스레드가 직접 결제한다. (backpressure)
+    }
+}
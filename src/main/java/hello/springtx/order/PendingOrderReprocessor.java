@@ -0,0 +1,321 @@
+package hello.springtx.order;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 잔고 부족으로 "대기" 상태로 커밋된 주문(OrderService.order)의 결제를 다시 시도한다.
+ *
+ * 1. 체크포인트 다음 id 부터 "대기" 주문 id 를 chunkSize 씩 읽는다. (키셋 페이지, (pay_status, id) 인덱스)
+ * 2. chunk 마다 워커 스레드에서 주문 하나씩 자기 트랜잭션으로 결제를 다시 시도한다.
+ *    정상 승인 : "완료" 로 변경, 잔고부족 : "대기" 그대로, 시스템 예외 : 실패로 세고 "대기" 그대로 둔다.
+ *    chunk 전체를 한 트랜잭션으로 묶지 않는다. - 커밋이 실패하면 이미 결제한 주문까지 "대기" 로 돌아가 다음 실행에서 또 결제하고,
+ *    chunk 의 결제가 모두 끝날 때까지 커넥션을 잡고 있게 된다. 주문 하나의 커밋이 실패해도 그 주문만 "대기" 로 남는다.
+ * 3. 앞에서부터 연속으로 모든 주문이 커밋된 chunk 까지만 체크포인트를 옮긴다.
+ *    주문 커밋이 실패하면(다른 요청과 버전 충돌 등) 체크포인트는 그 chunk 앞에 멈추고, 다음 실행이 거기서 다시 시작한다.
+ * 4. 끝까지 실패 없이 읽으면 체크포인트를 0 으로 되돌린다. (다음 실행은 처음부터 - 여전히 잔고 부족인 주문을 다시 본다)
+ *
+ * shard 를 쓰면 shard 마다 차례로 1~4 를 한다. 체크포인트는 shard 마다 따로 두고, 체크포인트 테이블은 shard 0 에 있다.
+ *
+ * 지표 : springtx.order.reprocess.orders{outcome=completed|pending|failed}, springtx.order.reprocess.chunk
+ */
+@Slf4j
+@Component
+public class PendingOrderReprocessor {
+
+    static final String CHECKPOINT = "pending-order";
+
+    private final OrderRepository orderRepository;
+    private final ReprocessCheckpointRepository checkpointRepository;
+    private final PaymentGateway paymentGateway;
+    private final ShardedOrderService shardedOrderService;
+    private final ReprocessProperties properties;
+    private final ObjectProvider<MeterRegistry> registryProvider;
+    private final TransactionTemplate txTemplate;
+    private final TransactionTemplate readOnlyTxTemplate;
+    private final ExecutorService workers;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public PendingOrderReprocessor(OrderRepository orderRepository, ReprocessCheckpointRepository checkpointRepository,
+                                   PaymentGateway paymentGateway, ShardedOrderService shardedOrderService, ReprocessProperties properties,
+                                   PlatformTransactionManager txManager, ObjectProvider<MeterRegistry> registryProvider) {
+        this.orderRepository = orderRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.paymentGateway = paymentGateway;
+        this.shardedOrderService = shardedOrderService;
+        this.properties = properties;
+        this.registryProvider = registryProvider;
+        this.txTemplate = new TransactionTemplate(txManager);
+        this.readOnlyTxTemplate = new TransactionTemplate(txManager);
+        this.readOnlyTxTemplate.setReadOnly(true);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(properties.getWorkers(),
+                runnable -> new Thread(runnable, "order-reprocess-" + threadNumber.incrementAndGet()));
+    }
+
+    // springtx.order.reprocess.cron 을 설정하면 주기적으로 실행한다. (기본값 "-" 은 실행하지 않음)
+    @Scheduled(cron = "${springtx.order.reprocess.cron:-}")
+    public void scheduled() throws InterruptedException {
+        run();
+    }
+
+    /**
+     * 이미 실행 중이면 바로 null 을 돌려준다.
+     */
+    public ReprocessResult run() throws InterruptedException {
+        if (!running.compareAndSet(false, true)) {
+            log.info("대기 주문 재처리가 이미 실행 중입니다.");
+            return null;
+        }
+        try {
+            return scan();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private ReprocessResult scan() throws InterruptedException {
+        long start = System.nanoTime();
+        Progress total = new Progress(0);
+        int chunks = 0;
+        for (int shard = 0; shard < shardedOrderService.getShardCount(); shard++) {
+            chunks += scanShard(shard, total);
+        }
+
+        ReprocessResult result = new ReprocessResult(total.completed, total.pending, total.failed, chunks,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        log.info("대기 주문 재처리 완료 {}", result);
+        return result;
+    }
+
+    // shard 하나를 체크포인트 다음부터 끝까지 처리하고 결과를 total 에 더한다. 처리한 chunk 수를 돌려준다.
+    private int scanShard(int shard, Progress total) throws InterruptedException {
+        String checkpointName = checkpointName(shard);
+        long afterId = txTemplate.execute(status -> checkpoint(checkpointName).getLastId());
+        log.info("대기 주문 재처리 시작 shard={}, afterId={}", shard, afterId);
+
+        // chunk 를 너무 많이 읽어 두지 않도록 처리 중인 chunk 수를 워커 수의 두 배로 제한한다.
+        Semaphore inFlight = new Semaphore(properties.getWorkers() * 2);
+        Deque<Chunk> submitted = new ArrayDeque<>();
+        Progress progress = new Progress(afterId);
+        int chunks = 0;
+
+        while (true) {
+            long from = afterId;
+            List<Long> ids = shardedOrderService.callInShard(shard, () -> readOnlyTxTemplate.execute(status ->
+                    orderRepository.findIdsByPayStatusAfter(PayStatusConverter.PENDING, from, PageRequest.of(0, properties.getChunkSize()))));
+            if (ids.isEmpty()) {
+                break;
+            }
+            afterId = ids.get(ids.size() - 1);
+
+            inFlight.acquire();
+            CompletableFuture<ChunkResult> future;
+            try {
+                future = CompletableFuture.supplyAsync(() -> shardedOrderService.callInShard(shard, () -> process(ids)), workers);
+            } catch (RuntimeException e) {
+                inFlight.release();
+                throw e;
+            }
+            future.whenComplete((result, e) -> inFlight.release());
+            submitted.add(new Chunk(afterId, ids.size(), future));
+            chunks++;
+
+            advance(checkpointName, submitted, progress);
+        }
+
+        for (Chunk chunk : submitted) {
+            chunk.future.handle((result, e) -> null).join();
+        }
+        advance(checkpointName, submitted, progress);
+
+        // 끝까지 실패 없이 처리했으면 다음 실행은 처음부터 다시 본다.
+        if (!progress.blocked) {
+            saveCheckpoint(checkpointName, 0);
+        }
+
+        total.completed += progress.completed;
+        total.pending += progress.pending;
+        total.failed += progress.failed;
+        return chunks;
+    }
+
+    // 앞에서부터 끝난 chunk 를 꺼내서 결과를 더하고, 실패한 chunk 를 만나기 전까지 체크포인트를 옮긴다.
+    private void advance(String checkpointName, Deque<Chunk> submitted, Progress progress) {
+        long checkpoint = progress.checkpoint;
+        while (!submitted.isEmpty() && submitted.peekFirst().future.isDone()) {
+            Chunk chunk = submitted.pollFirst();
+            ChunkResult result = chunk.future.handle((r, e) -> r).join();
+            if (result == null) {
+                progress.failed += chunk.size;
+                progress.blocked = true;
+                continue;
+            }
+            progress.completed += result.completed;
+            progress.pending += result.pending;
+            progress.failed += result.failed;
+            if (result.commitFailed) {
+                progress.blocked = true;
+            }
+            if (!progress.blocked) {
+                checkpoint = chunk.lastId;
+            }
+        }
+        if (checkpoint != progress.checkpoint) {
+            saveCheckpoint(checkpointName, checkpoint);
+            progress.checkpoint = checkpoint;
+        }
+    }
+
+    // chunk 하나 - 워커 스레드에서 주문마다 트랜잭션 하나로 처리한다.
+    private ChunkResult process(List<Long> ids) {
+        Timer.Sample sample = Timer.start();
+        ChunkResult result = new ChunkResult();
+        try {
+            for (Long id : ids) {
+                Outcome outcome;
+                try {
+                    outcome = txTemplate.execute(status -> reprocess(id));
+                } catch (RuntimeException e) {
+                    // 커밋 실패 - 결제 결과를 저장하지 못했으므로 주문은 "대기" 그대로다.
+                    log.warn("재처리 주문 커밋 실패 orderId={}", id, e);
+                    result.failed++;
+                    result.commitFailed = true;
+                    continue;
+                }
+                switch (outcome) {
+                    case COMPLETED:
+                        result.completed++;
+                        break;
+                    case PENDING:
+                        result.pending++;
+                        break;
+                    case FAILED:
+                        result.failed++;
+                        break;
+                    default:
+                }
+            }
+        } finally {
+            sample.stop(Timer.builder("springtx.order.reprocess.chunk").register(registry()));
+        }
+        increment("completed", result.completed);
+        increment("pending", result.pending);
+        increment("failed", result.failed);
+        return result;
+    }
+
+    // 주문 하나 - 호출한 쪽의 트랜잭션 안에서 다시 읽고 결제한다.
+    private Outcome reprocess(Long id) {
+        Order order = orderRepository.findById(id).orElse(null);
+        if (order == null || !PayStatusConverter.PENDING.equals(order.getPayStatus())) {
+            return Outcome.SKIPPED; // 다른 요청이 먼저 처리했다.
+        }
+        try {
+            paymentGateway.pay(order);
+        } catch (NotEnoughMoneyException e) {
+            return Outcome.PENDING;
+        } catch (RuntimeException e) {
+            log.warn("재처리 결제 실패 orderId={}", id, e);
+            return Outcome.FAILED;
+        }
+        order.setPayStatus(PayStatusConverter.COMPLETED);
+        return Outcome.COMPLETED;
+    }
+
+    // shard 0 은 shard 를 쓰지 않을 때와 같은 이름을 쓴다.
+    static String checkpointName(int shard) {
+        return shard == 0 ? CHECKPOINT : CHECKPOINT + "-" + shard;
+    }
+
+    private ReprocessCheckpoint checkpoint(String name) {
+        return checkpointRepository.findById(name)
+                .orElseGet(() -> checkpointRepository.save(new ReprocessCheckpoint(name)));
+    }
+
+    private void saveCheckpoint(String name, long lastId) {
+        txTemplate.executeWithoutResult(status -> {
+            ReprocessCheckpoint checkpoint = checkpoint(name);
+            checkpoint.setLastId(lastId);
+            checkpoint.setUpdatedAt(LocalDateTime.now());
+        });
+    }
+
+    private void increment(String outcome, long amount) {
+        if (amount == 0) {
+            return;
+        }
+        Counter.builder("springtx.order.reprocess.orders")
+                .tag("outcome", outcome)
+                .register(registry())
+                .increment(amount);
+    }
+
+    private MeterRegistry registry() {
+        return registryProvider.getIfAvailable(() -> Metrics.globalRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        workers.shutdown();
+        workers.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private static class Chunk {
+        private final long lastId;
+        private final int size;
+        private final CompletableFuture<ChunkResult> future;
+
+        private Chunk(long lastId, int size, CompletableFuture<ChunkResult> future) {
+            this.lastId = lastId;
+            this.size = size;
+            this.future = future;
+        }
+    }
+
+    private enum Outcome {
+        COMPLETED, PENDING, FAILED, SKIPPED
+    }
+
+    private static class ChunkResult {
+        private long completed;
+        private long pending;
+        private long failed;
+        private boolean commitFailed;
+    }
+
+    private static class Progress {
+        private long checkpoint;
+        private boolean blocked;
+        private long completed;
+        private long pending;
+        private long failed;
+
+        private Progress(long checkpoint) {
+            this.checkpoint = checkpoint;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package hello.springtx.order;
+
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.Disposable;
+
+/**
+ * 리액티브 주문용 R2DBC 설정
+ *
+ * ConnectionFactory 나 ReactiveTransactionManager 를 스프링 빈으로 등록하지 않는다.
+ * - ConnectionFactory 빈이 있으면 스프링 부트가 DataSource(JPA) 자동 설정을 하지 않는다.
+ * - TransactionManager 빈이 두 개가 되면 @Transactional 이 어떤 트랜잭션 매니저를 쓸지 정할 수 없다.
+ * 그래서 ReactiveOrderDatabase 하나로 감싸서 등록하고, 트랜잭션은 TransactionalOperator 로 적용한다.
+ *
+ * springtx.order.reactive.enabled=true 일 때만 등록한다. (꺼져 있으면 R2DBC 커넥션 풀을 만들지 않는다)
+ * 테이블은 JPA 의 orders 와 같은 모양으로 만든다. - 결제 상태는 P/C 코드, 버전, 멱등 키
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "springtx.order.reactive.enabled", havingValue = "true")
+public class ReactiveOrderConfig {
+
+    @Bean
+    ReactiveOrderDatabase reactiveOrderDatabase(@Value("${springtx.order.reactive.url}") String url) {
+        ConnectionFactory connectionFactory = ConnectionFactories.get(url);
+        DatabaseClient client = DatabaseClient.create(connectionFactory);
+
+        client.sql("create table if not exists orders (id bigint auto_increment primary key, username varchar(255),"
+                        + " pay_status varchar(1), idempotency_key varchar(255), version bigint not null)")
+                .then()
+                .then(client.sql("create unique index if not exists uk_orders_idempotency_key on orders (idempotency_key)").then())
+                .then(client.sql("create index if not exists idx_orders_pay_status_id on orders (pay_status, id)").then())
+                .block();
+        log.info("리액티브 주문 DB 준비 완료. url={}", url);
+
+        return new ReactiveOrderDatabase(connectionFactory, client,
+                TransactionalOperator.create(new R2dbcTransactionManager(connectionFactory)));
+    }
+
+    public static class ReactiveOrderDatabase implements AutoCloseable {
+
+        private final ConnectionFactory connectionFactory;
+        private final DatabaseClient client;
+        private final TransactionalOperator transactionalOperator;
+
+        ReactiveOrderDatabase(ConnectionFactory connectionFactory, DatabaseClient client, TransactionalOperator transactionalOperator) {
+            this.connectionFactory = connectionFactory;
+            this.client = client;
+            this.transactionalOperator = transactionalOperator;
+        }
+
+        public DatabaseClient getClient() {
+            return client;
+        }
+
+        public TransactionalOperator getTransactionalOperator() {
+            return transactionalOperator;
+        }
+
+        @Override
+        public void close() {
+            if (connectionFactory instanceof Disposable) {
+                ((Disposable) connectionFactory).dispose(); // 커넥션 풀 종료
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package hello.springtx.order;
+
+import io.r2dbc.spi.Row;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+/**
+ * OrderRepository 의 R2DBC 버전 - 같은 Order 객체를 orders 테이블에 저장한다.
+ * TransactionalOperator 안에서 호출하면 그 트랜잭션의 커넥션을 사용한다.
+ *
+ * JPA 와 같게 결제 상태는 PayStatusConverter 로 P/C 코드로 바꿔 저장하고,
+ * version 이 다르면(다른 요청이 먼저 수정) OptimisticLockingFailureException 을 던진다.
+ */
+@Repository
+@ConditionalOnProperty(name = "springtx.order.reactive.enabled", havingValue = "true")
+public class ReactiveOrderRepository {
+
+    private static final PayStatusConverter PAY_STATUS = new PayStatusConverter();
+
+    private final DatabaseClient client;
+
+    public ReactiveOrderRepository(ReactiveOrderConfig.ReactiveOrderDatabase database) {
+        this.client = database.getClient();
+    }
+
+    public Mono<Order> save(Order order) {
+        if (order.getId() != null) {
+            return update(order);
+        }
+
+        DatabaseClient.GenericExecuteSpec insert = client.sql("insert into orders (username, pay_status, idempotency_key, version)"
+                        + " values (:username, :payStatus, :idempotencyKey, 0)")
+                .bind("username", order.getUsername());
+        insert = bindNullable(insert, "payStatus", PAY_STATUS.convertToDatabaseColumn(order.getPayStatus()));
+        insert = bindNullable(insert, "idempotencyKey", order.getIdempotencyKey());
+
+        return insert.filter(statement -> statement.returnGeneratedValues("id"))
+                .map(row -> row.get("id", Long.class))
+                .one()
+                .map(id -> {
+                    order.setId(id);
+                    order.setVersion(0L);
+                    return order;
+                });
+    }
+
+    public Mono<Order> update(Order order) {
+        DatabaseClient.GenericExecuteSpec update = client.sql("update orders set pay_status = :payStatus, version = version + 1"
+                        + " where id = :id and version = :version")
+                .bind("id", order.getId())
+                .bind("version", order.getVersion());
+        return bindNullable(update, "payStatus", PAY_STATUS.convertToDatabaseColumn(order.getPayStatus()))
+                .fetch()
+                .rowsUpdated()
+                .flatMap(rows -> {
+                    if (rows == 0) {
+                        return Mono.error(new OptimisticLockingFailureException("주문이 이미 수정되었습니다. orderId=" + order.getId()));
+                    }
+                    order.setVersion(order.getVersion() + 1);
+                    return Mono.just(order);
+                });
+    }
+
+    public Mono<Order> findById(Long id) {
+        return client.sql("select id, username, pay_status, idempotency_key, version from orders where id = :id")
+                .bind("id", id)
+                .map(ReactiveOrderRepository::toOrder)
+                .one();
+    }
+
+    private static Order toOrder(Row row) {
+        Order order = new Order();
+        order.setId(row.get("id", Long.class));
+        order.setUsername(row.get("username", String.class));
+        order.setPayStatus(PAY_STATUS.convertToEntityAttribute(row.get("pay_status", String.class)));
+        order.setIdempotencyKey(row.get("idempotency_key", String.class));
+        order.setVersion(row.get("version", Long.class));
+        return order;
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindNullable(DatabaseClient.GenericExecuteSpec spec, String name, String value) {
+        return value != null ? spec.bind(name, value) : spec.bindNull(name, String.class);
+    }
+}
@@ -0,0 +1,83 @@
+package hello.springtx.order;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.interceptor.DefaultTransactionAttribute;
+import org.springframework.transaction.interceptor.TransactionAttribute;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+/**
+ * OrderService.order 의 논블로킹 버전 (R2DBC)
+ *
+ * TransactionalOperator 는 어떤 예외든 롤백하므로, @Transactional 과 같은 롤백 규칙을 직접 적용한다.
+ * 언체크 예외(RuntimeException) - 롤백, 체크 예외(NotEnoughMoneyException) - 커밋 후 예외 전달
+ * 결제 응답도 스레드를 잡지 않고 기다리므로 이벤트 루프 스레드 몇 개로 모든 주문을 처리한다.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "springtx.order.reactive.enabled", havingValue = "true")
+public class ReactiveOrderService {
+
+    private static final TransactionAttribute ROLLBACK_RULES = new DefaultTransactionAttribute();
+
+    private final ReactiveOrderRepository orderRepository;
+    private final PaymentGateway paymentGateway;
+    private final TransactionalOperator transactionalOperator;
+
+    public ReactiveOrderService(ReactiveOrderRepository orderRepository, PaymentGateway paymentGateway,
+                                ReactiveOrderConfig.ReactiveOrderDatabase database) {
+        this.orderRepository = orderRepository;
+        this.paymentGateway = paymentGateway;
+        this.transactionalOperator = database.getTransactionalOperator();
+    }
+
+    public Mono<Order> order(Order order) {
+        Mono<Order> flow = Mono.defer(() -> {
+                    log.info("order 호출");
+                    return orderRepository.save(order);
+                })
+                .flatMap(this::pay)
+                .onErrorResume(NotEnoughMoneyException.class, e -> {
+                    order.setPayStatus("대기");
+                    return orderRepository.update(order).then(Mono.error(e));
+                })
+                .flatMap(paid -> {
+                    // 정상 승인
+                    paid.setPayStatus("완료");
+                    return orderRepository.update(paid);
+                })
+                .doOnSuccess(paid -> log.info("결제 프로세스 완료"));
+
+        return transactional(flow);
+    }
+
+    // 블로킹 결제(PaymentGateway.pay)를 쓰면 그만큼 스레드가 필요하므로 논블로킹 결제를 쓴다.
+    private Mono<Order> pay(Order order) {
+        return Mono.defer(() -> {
+            log.info("결제 프로세스 진입");
+            return paymentGateway.payNonBlocking(order);
+        }).thenReturn(order);
+    }
+
+    // 롤백 규칙상 커밋해야 하는 예외는 값으로 바꿔서 트랜잭션을 커밋하게 하고, 커밋 후 다시 예외로 돌려준다.
+    @SuppressWarnings("unchecked")
+    private <T> Mono<T> transactional(Mono<T> work) {
+        Mono<Object> committable = work.<Object>map(value -> value)
+                .onErrorResume(ex -> !ROLLBACK_RULES.rollbackOn(ex), ex -> Mono.just(new CommittedException(ex)));
+
+        return transactionalOperator.transactional(committable)
+                .flatMap(result -> result instanceof CommittedException
+                        ? Mono.error(((CommittedException) result).cause)
+                        : Mono.just((T) result));
+    }
+
+    private static class CommittedException {
+        final Throwable cause;
+
+        CommittedException(Throwable cause) {
+            this.cause = cause;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package hello.springtx.order;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+
+/**
+ * 재처리 작업의 진행 위치 - 이 id 까지는 처리가 끝났다. 중단 후 다시 실행하면 다음 id 부터 시작한다.
+ */
+@Entity
+@Table(name = "reprocess_checkpoint")
+@Getter
+@Setter
+public class ReprocessCheckpoint {
+
+    @Id
+    private String name;
+
+    private long lastId;
+
+    private LocalDateTime updatedAt;
+
+    public ReprocessCheckpoint() {
+    }
+
+    public ReprocessCheckpoint(String name) {
+        this.name = name;
+    }
+}
@@ -0,0 +1,6 @@
+package hello.springtx.order;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ReprocessCheckpointRepository extends JpaRepository<ReprocessCheckpoint, String> {
+}
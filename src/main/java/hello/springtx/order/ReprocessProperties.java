@@ -0,0 +1,20 @@
+package hello.springtx.order;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 대기 주문 재처리 설정 (PendingOrderReprocessor)
+ */
+@Getter
+@Setter
+@ConfigurationProperties("springtx.order.reprocess")
+public class ReprocessProperties {
+
+    // 한 번에 읽어서 워커 하나에 넘길 주문 수 - 결제는 주문마다 트랜잭션 하나
+    private int chunkSize = 100;
+
+    // 동시에 chunk 를 처리할 스레드 수 - 커넥션 풀 크기보다 작게
+    private int workers = 4;
+}
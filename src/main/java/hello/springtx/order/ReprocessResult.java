@@ -0,0 +1,30 @@
+package hello.springtx.order;
+
+import lombok.Getter;
+
+/**
+ * 대기 주문 재처리 결과
+ */
+@Getter
+public class ReprocessResult {
+
+    private final long completed; // 결제 완료
+    private final long stillPending; // 여전히 잔고 부족
+    private final long failed; // 시스템 예외 또는 주문 커밋 실패 - 다음 실행에서 다시 시도한다.
+    private final int chunks;
+    private final long elapsedMillis;
+
+    public ReprocessResult(long completed, long stillPending, long failed, int chunks, long elapsedMillis) {
+        this.completed = completed;
+        this.stillPending = stillPending;
+        this.failed = failed;
+        this.chunks = chunks;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "ReprocessResult{completed=" + completed + ", stillPending=" + stillPending + ", failed=" + failed
+                + ", chunks=" + chunks + ", elapsedMillis=" + elapsedMillis + "}";
+    }
+}
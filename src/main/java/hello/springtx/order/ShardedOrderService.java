@@ -0,0 +1,146 @@
+package hello.springtx.order;
+
+import hello.springtx.datasource.ShardContext;
+import hello.springtx.datasource.ShardRoutingDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * username 해시로 shard 를 골라 주문한다. (springtx.datasource.shard.enabled=true)
+ *
+ * 주문은 OrderService.order 그대로 - 트랜잭션 하나가 한 shard 안에서만 커밋/롤백된다.
+ * 관리용 조회는 모든 shard 에 동시에 묻고 결과를 합친다. (scatter-gather)
+ * shard 를 쓰지 않으면 shard 0 하나만 있는 것과 같다.
+ *
+ * 주문을 다루는 다른 서비스(IdempotentOrderService, OrderPipelineService, PendingOrderReprocessor, OrderCsvExporter)도
+ * callInShardOf/callInShard 로 shard 를 정한 뒤 트랜잭션을 시작한다.
+ */
+@Slf4j
+@Service
+public class ShardedOrderService {
+
+    private final OrderService orderService;
+    private final OrderRepository orderRepository;
+    private final TransactionTemplate readOnlyTxTemplate;
+    private final int shardCount;
+    private final ExecutorService shardExecutor;
+
+    public ShardedOrderService(OrderService orderService, OrderRepository orderRepository,
+                               PlatformTransactionManager txManager, DataSource dataSource) throws SQLException {
+        this.orderService = orderService;
+        this.orderRepository = orderRepository;
+        this.readOnlyTxTemplate = new TransactionTemplate(txManager);
+        this.readOnlyTxTemplate.setReadOnly(true);
+        this.shardCount = dataSource.isWrapperFor(ShardRoutingDataSource.class)
+                ? dataSource.unwrap(ShardRoutingDataSource.class).getShardCount()
+                : 1;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.shardExecutor = Executors.newFixedThreadPool(shardCount,
+                runnable -> new Thread(runnable, "order-shard-" + threadNumber.incrementAndGet()));
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public int shardOf(String username) {
+        int hash = username.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), shardCount);
+    }
+
+    // 트랜잭션을 시작하기 전에 shard 를 정해야 하므로 이미 트랜잭션 안이면 사용할 수 없다.
+    public void order(Order order) throws NotEnoughMoneyException {
+        callInShardOf(order.getUsername(), () -> {
+            orderService.order(order);
+            return null;
+        });
+    }
+
+    // username 의 주문이 저장되는 shard 에서 callback 을 실행한다. 트랜잭션은 callback 안에서 시작해야 한다.
+    public <T, E extends Exception> T callInShardOf(String username, ShardContext.ShardCallback<T, E> callback) throws E {
+        return callInShard(shardOf(username), callback);
+    }
+
+    public <T, E extends Exception> T callInShard(int shard, ShardContext.ShardCallback<T, E> callback) throws E {
+        if (shardCount > 1 && TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("진행 중인 트랜잭션이 있으면 shard 를 바꿀 수 없습니다.");
+        }
+        return ShardContext.call(shard, callback);
+    }
+
+    // 주문이 있는 shard 를 찾은 뒤 그 shard 에서 변경한다. shard 는 재시도/트랜잭션 AOP 바깥에서 정한다.
+    public Order updatePayStatus(Long orderId, String payStatus) {
+        List<Boolean> exists = scatter(() -> orderRepository.existsById(orderId));
+        int shard = exists.indexOf(true);
+        if (shard < 0) {
+            throw new IllegalArgumentException("주문이 없습니다. orderId=" + orderId);
+        }
+        return callInShard(shard, () -> orderService.updatePayStatus(orderId, payStatus));
+    }
+
+    public Optional<Order> findById(Long id) {
+        return scatter(() -> orderRepository.findById(id)).stream()
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .findFirst();
+    }
+
+    public List<Order> findAll() {
+        List<Order> orders = new ArrayList<>();
+        scatter(orderRepository::findAll).forEach(orders::addAll);
+        orders.sort(Comparator.comparing(Order::getId));
+        return orders;
+    }
+
+    public long countByPayStatus(String payStatus) {
+        return scatter(() -> orderRepository.countByPayStatus(payStatus)).stream().mapToLong(Long::longValue).sum();
+    }
+
+    // shard 마다 읽기 전용 트랜잭션 하나로 조회한다. 결과는 shard 순서
+    private <T> List<T> scatter(Supplier<T> query) {
+        List<CompletableFuture<T>> futures = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            int shard = i;
+            futures.add(CompletableFuture.supplyAsync(
+                    () -> ShardContext.call(shard, () -> readOnlyTxTemplate.execute(status -> query.get())),
+                    shardExecutor));
+        }
+        List<T> results = new ArrayList<>();
+        try {
+            for (CompletableFuture<T> future : futures) {
+                results.add(future.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return results;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        shardExecutor.shutdown();
+        shardExecutor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+}
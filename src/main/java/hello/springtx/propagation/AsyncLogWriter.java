@@ -0,0 +1,170 @@
+package hello.springtx.propagation;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 로그를 메모리 큐에 담아두고 백그라운드 스레드가 모아서 저장한다. (write-behind)
+ * 호출한 쪽의 트랜잭션을 보류(suspend)하거나 커넥션을 하나 더 잡지 않기 때문에 REQUIRES_NEW 보다 가볍다.
+ * 대신 로그 저장은 회원 저장과 별개로, 조금 늦게 반영된다. (JVM 이 비정상 종료되면 큐에 남은 로그는 유실된다)
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AsyncLogWriter {
+
+    private final LogBatchWriter logBatchWriter;
+    private final AsyncLogWriterProperties properties;
+
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private BlockingQueue<String> queue;
+    private Thread worker;
+    private volatile boolean running;
+
+    // 스레드는 여기서 띄우지만 실제 저장(트랜잭션)은 스프링 컨테이너가 모두 뜬 뒤 로그가 들어올 때 일어난다.
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        running = true;
+        worker = new Thread(this::drainLoop, "async-log-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    // 종료 시 큐에 남은 로그를 모두 저장한다.
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        worker.join(properties.getFlushInterval().toMillis() * 10 + 1000);
+    }
+
+    /**
+     * @return 큐에 담겼거나 바로 저장되면 true, 버려지면 false
+     */
+    public boolean write(String message) {
+        pending.incrementAndGet();
+        if (queue.offer(message)) {
+            return true;
+        }
+
+        switch (properties.getOverflowPolicy()) {
+            case BLOCK:
+                try {
+                    if (queue.offer(message, properties.getOfferTimeout().toNanos(), TimeUnit.NANOSECONDS)) {
+                        return true;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return drop(message);
+            case CALLER_RUNS:
+                flush(List.of(message));
+                return true;
+            default:
+                return drop(message);
+        }
+    }
+
+    /**
+     * 지금까지 넘겨받은 로그가 모두 저장(또는 실패 처리)될 때까지 기다린다.
+     */
+    public boolean awaitFlushed(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (pending.get() > 0) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    private boolean drop(String message) {
+        log.warn("log 큐가 가득 차서 버립니다. logMessage={}", message);
+        dropped.incrementAndGet();
+        pending.decrementAndGet();
+        return false;
+    }
+
+    private void drainLoop() {
+        int flushSize = properties.getFlushSize();
+        long flushIntervalNanos = properties.getFlushInterval().toNanos();
+        List<String> batch = new ArrayList<>(flushSize);
+        long deadline = 0;
+
+        while (true) {
+            try {
+                if (batch.isEmpty()) {
+                    String first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                    if (first == null) {
+                        if (!running) {
+                            break;
+                        }
+                        continue;
+                    }
+                    batch.add(first);
+                    deadline = System.nanoTime() + flushIntervalNanos;
+                }
+
+                queue.drainTo(batch, flushSize - batch.size());
+
+                long remaining = deadline - System.nanoTime();
+                if (batch.size() < flushSize && remaining > 0 && running) {
+                    String next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                        continue;
+                    }
+                }
+            } catch (InterruptedException e) {
+                running = false;
+            }
+
+            flush(batch);
+            batch.clear();
+        }
+    }
+
+    private void flush(List<String> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            int failedCount = logBatchWriter.write(batch).size();
+            failed.addAndGet(failedCount);
+            written.addAndGet(batch.size() - failedCount);
+        } catch (RuntimeException e) {
+            log.error("log 배치 저장 중 예상하지 못한 예외 발생. size={}", batch.size(), e);
+            failed.addAndGet(batch.size());
+        } finally {
+            pending.addAndGet(-batch.size());
+        }
+    }
+}
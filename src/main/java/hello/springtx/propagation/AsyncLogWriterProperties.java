@@ -0,0 +1,28 @@
+package hello.springtx.propagation;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 비동기 로그 저장(write-behind) 설정
+ */
+@Getter
+@Setter
+@ConfigurationProperties("springtx.log.async")
+public class AsyncLogWriterProperties {
+
+    private int queueCapacity = 10_000; // 메모리에 쌓아둘 수 있는 최대 로그 수
+    private int flushSize = 100; // 한 번에(하나의 트랜잭션, 하나의 JDBC 배치로) 저장할 로그 수
+    private Duration flushInterval = Duration.ofMillis(200); // flushSize 를 채우지 못해도 이 시간이 지나면 저장
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK; // 큐가 가득 찼을 때의 처리 방식
+    private Duration offerTimeout = Duration.ofMillis(50); // BLOCK 정책에서 큐에 자리가 나기를 기다리는 최대 시간
+
+    public enum OverflowPolicy {
+        BLOCK, // offerTimeout 만큼 기다린 후에도 자리가 없으면 버린다.
+        DROP, // 기다리지 않고 바로 버린다.
+        CALLER_RUNS // 호출한 스레드에서 바로 저장한다. (REQUIRES_NEW 와 동일한 비용)
+    }
+}
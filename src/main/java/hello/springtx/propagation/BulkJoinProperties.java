@@ -0,0 +1,24 @@
+package hello.springtx.propagation;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 대량 회원 가입(MemberService.joinAll) 설정
+ */
+@Getter
+@Setter
+@ConfigurationProperties("springtx.member.bulk")
+public class BulkJoinProperties {
+
+    private int chunkSize = 500; // 하나의 트랜잭션에서 저장하고 flush/clear 할 회원 수
+
+    // 0 이하면 joinAll 이 다음 chunk 로 넘어가지 못하므로 설정을 읽을 때 막는다.
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("springtx.member.bulk.chunk-size 는 1 이상이어야 합니다. chunkSize=" + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+    }
+}
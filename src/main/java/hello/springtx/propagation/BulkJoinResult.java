@@ -0,0 +1,52 @@
+package hello.springtx.propagation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 대량 회원 가입 결과 - 요청한 순서대로 건별 상태를 가진다.
+ */
+public class BulkJoinResult {
+
+    public enum Status {
+        JOINED, // 회원, 로그 모두 저장
+        LOG_FAILED, // 회원은 저장, 로그 저장 실패 (joinV2 와 같이 정상 흐름으로 본다)
+        FAILED // 회원 저장 실패
+    }
+
+    private final List<String> usernames;
+    private final Status[] statuses;
+
+    BulkJoinResult(List<String> usernames) {
+        this.usernames = Collections.unmodifiableList(usernames);
+        this.statuses = new Status[usernames.size()];
+    }
+
+    void mark(int index, Status status) {
+        statuses[index] = status;
+    }
+
+    public int size() {
+        return statuses.length;
+    }
+
+    public Status statusOf(int index) {
+        return statuses[index];
+    }
+
+    public long count(Status status) {
+        return Arrays.stream(statuses).filter(s -> s == status).count();
+    }
+
+    public List<String> usernamesWith(Status status) {
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < statuses.length; i++) {
+            if (statuses[i] == status) {
+                result.add(usernames.get(i));
+            }
+        }
+        return result;
+    }
+}
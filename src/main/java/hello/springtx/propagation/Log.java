@@ -1,22 +1,29 @@
 package hello.springtx.propagation;
 
+import hello.springtx.common.PooledSequenceGenerator;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.GenericGenerator;
 
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
 
 /**
  * DB에 남기는 로그
  */
 
 @Entity
+@Table(indexes = @Index(name = "idx_log_message", columnList = "message"))
 @Getter
 @Setter
 public class Log {
 
-    @Id @GeneratedValue
+    @Id
+    @GeneratedValue(generator = PooledSequenceGenerator.NAME)
+    @GenericGenerator(name = PooledSequenceGenerator.NAME, strategy = PooledSequenceGenerator.STRATEGY)
     private Long id;
     private String message;
 
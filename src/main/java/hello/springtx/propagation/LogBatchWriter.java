@@ -0,0 +1,49 @@
+package hello.springtx.propagation;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 로그 메시지를 하나의 트랜잭션(JDBC 배치)으로 저장한다.
+ * 배치 중 하나라도 실패하면 배치 전체가 롤백되므로, 이 때는 한 건씩 다시 저장해서 실패한 로그만 골라낸다.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LogBatchWriter {
+
+    private final LogRepository logRepository;
+
+    /**
+     * @return 저장에 실패한 메시지 목록
+     */
+    public List<String> write(List<String> messages) {
+        if (messages.isEmpty()) {
+            return List.of();
+        }
+
+        try {
+            // 롤백된 트랜잭션에서 persist 된 엔티티는 id 를 가진 채로 남기 때문에 시도할 때마다 새 Log 를 만든다.
+            logRepository.saveAll(messages.stream().map(Log::new).collect(Collectors.toList()));
+            return List.of();
+        } catch (RuntimeException e) {
+            log.info("log 배치 저장 실패, 한 건씩 다시 저장합니다. size={}", messages.size());
+        }
+
+        List<String> failed = new ArrayList<>();
+        for (String message : messages) {
+            try {
+                logRepository.save(new Log(message));
+            } catch (RuntimeException e) {
+                log.info("log 저장에 실패했습니다. logMessage={}", message);
+                failed.add(message);
+            }
+        }
+        return failed;
+    }
+}
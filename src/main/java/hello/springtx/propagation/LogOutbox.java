@@ -0,0 +1,50 @@
+package hello.springtx.propagation;
+
+import hello.springtx.common.PooledSequenceGenerator;
+import lombok.Getter;
+import lombok.Setter;
+import org.hibernate.annotations.GenericGenerator;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+
+/**
+ * 아직 Log 로 옮겨지지 않은 로그 (transactional outbox)
+ * 회원 저장과 같은 트랜잭션에서 저장되고, LogOutboxRelay 가 Log 로 옮긴 뒤 삭제한다.
+ *
+ * 릴레이는 옮기기 전에 행을 선점(claimedBy, availableAt)한다. 선점 기간 동안 다른 인스턴스는 이 행을 건너뛴다.
+ * 옮기지 못한 행은 attempts 를 올리고 남겨 두었다가 다시 시도한다. (max-attempts 에 도달하면 더 이상 시도하지 않는다)
+ */
+@Entity
+@Table(name = "log_outbox", indexes = @Index(name = "idx_log_outbox_claimed_by", columnList = "claimed_by"))
+@Getter
+@Setter
+public class LogOutbox {
+
+    @Id
+    @GeneratedValue(generator = PooledSequenceGenerator.NAME)
+    @GenericGenerator(name = PooledSequenceGenerator.NAME, strategy = PooledSequenceGenerator.STRATEGY)
+    private Long id;
+    private String message;
+
+    private int attempts; // 옮기기에 실패한 횟수
+
+    @Column(name = "claimed_by")
+    private String claimedBy; // 선점한 릴레이 배치 (없으면 null)
+
+    @Column(name = "available_at")
+    private LocalDateTime availableAt; // 이 시각부터 다시 선점할 수 있다. (선점 만료 또는 재시도 시각, null 이면 바로)
+
+    public LogOutbox() {
+
+    }
+
+    public LogOutbox(String message) {
+        this.message = message;
+    }
+}
@@ -0,0 +1,24 @@
+package hello.springtx.propagation;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * outbox -> Log 릴레이 설정
+ * 조회 주기는 @Scheduled 에서 읽기 때문에 springtx.log.outbox.poll-interval-ms 로 따로 설정한다.
+ */
+@Getter
+@Setter
+@ConfigurationProperties("springtx.log.outbox")
+public class LogOutboxProperties {
+
+    private int batchSize = 500; // 한 번에 옮길 outbox 수
+    private long pollIntervalMs = 1000;
+
+    private Duration lease = Duration.ofSeconds(60); // 선점 유지 시간 - 배치 하나를 옮기는 시간보다 길게
+    private Duration retryDelay = Duration.ofSeconds(10); // 옮기지 못한 outbox 를 다시 시도하기까지 기다리는 시간
+    private int maxAttempts = 5; // 이 횟수만큼 실패한 outbox 는 더 이상 시도하지 않고 남겨 둔다. (dead letter)
+}
@@ -0,0 +1,76 @@
+package hello.springtx.propagation;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * outbox 에 쌓인 로그를 주기적으로 Log 로 옮긴다.
+ *
+ * 1. outbox 를 선점한다. (LogOutboxRepository.claim - 여러 인스턴스가 같은 행을 동시에 옮기지 않는다)
+ * 2. Log 로 저장한다. (별도 트랜잭션)
+ * 3. 저장된 outbox 만 삭제하고, 저장에 실패한 outbox 는 실패 횟수를 올려서 남겨 둔다. (retry-delay 뒤에 다시 시도)
+ *
+ * Log 저장이 커밋된 다음 outbox 를 삭제하기 때문에, 그 사이에 장애가 나면 같은 로그가 다시 옮겨질 수 있다. (at-least-once)
+ * max-attempts 번 실패한 outbox 는 더 이상 선점하지 않고 테이블에 남는다. (dead letter - 원인을 확인한 뒤 attempts 를 되돌리면 다시 옮긴다)
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LogOutboxRelay {
+
+    private final LogOutboxRepository logOutboxRepository;
+    private final LogBatchWriter logBatchWriter;
+    private final LogOutboxProperties properties;
+
+    @Scheduled(fixedDelayString = "${springtx.log.outbox.poll-interval-ms:1000}")
+    public synchronized int relay() {
+        int total = 0;
+        int claimed;
+        do {
+            claimed = relayBatch();
+            total += claimed;
+        } while (claimed == properties.getBatchSize());
+        return total;
+    }
+
+    private int relayBatch() {
+        List<LogOutbox> batch = logOutboxRepository.claim(properties.getBatchSize(), properties.getMaxAttempts(), properties.getLease());
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        Set<String> failed = new HashSet<>(logBatchWriter.write(batch.stream().map(LogOutbox::getMessage).collect(Collectors.toList())));
+
+        List<Long> written = new ArrayList<>();
+        List<Long> retry = new ArrayList<>();
+        for (LogOutbox outbox : batch) {
+            if (!failed.contains(outbox.getMessage())) {
+                written.add(outbox.getId());
+            } else {
+                retry.add(outbox.getId());
+                if (outbox.getAttempts() + 1 >= properties.getMaxAttempts()) {
+                    log.warn("outbox 를 {}번 옮기지 못해서 더 이상 시도하지 않습니다. id={}, logMessage={}",
+                            properties.getMaxAttempts(), outbox.getId(), outbox.getMessage());
+                }
+            }
+        }
+
+        if (!written.isEmpty()) {
+            logOutboxRepository.deleteAll(written);
+        }
+        if (!retry.isEmpty()) {
+            logOutboxRepository.release(retry, properties.getRetryDelay());
+            log.info("log 저장에 실패한 outbox 는 나중에 다시 시도합니다. count={}", retry.size());
+        }
+        log.info("outbox -> log {}건 이동", written.size());
+        return batch.size();
+    }
+}
@@ -0,0 +1,79 @@
+package hello.springtx.propagation;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+public class LogOutboxRepository {
+
+    private final EntityManager em;
+
+    // outbox 저장 - 호출한 쪽의 트랜잭션에 참여한다. (회원 저장과 함께 커밋/롤백)
+    @Transactional
+    public void save(LogOutbox logOutbox) {
+        log.info("log outbox 저장");
+        em.persist(logOutbox);
+    }
+
+    /**
+     * 먼저 들어온 순서대로 limit 건을 선점한다. (별도 트랜잭션으로 바로 커밋)
+     * 후보를 읽은 뒤 조건부 update 로 선점하므로, 다른 인스턴스가 먼저 선점한 행은 update 되지 않고 결과에서 빠진다.
+     * 선점한 행은 lease 가 지나기 전까지 다른 인스턴스가 가져가지 않는다. (릴레이가 중간에 죽으면 lease 후 다시 옮겨진다)
+     */
+    @Transactional
+    public List<LogOutbox> claim(int limit, int maxAttempts, Duration lease) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> candidates = em.createQuery("select o.id from LogOutbox o" +
+                        " where o.attempts < :maxAttempts and (o.availableAt is null or o.availableAt <= :now)" +
+                        " order by o.id", Long.class)
+                .setParameter("maxAttempts", maxAttempts)
+                .setParameter("now", now)
+                .setMaxResults(limit)
+                .getResultList();
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+
+        String owner = UUID.randomUUID().toString();
+        em.createQuery("update LogOutbox o set o.claimedBy = :owner, o.availableAt = :leaseEnd" +
+                        " where o.id in :ids and o.attempts < :maxAttempts and (o.availableAt is null or o.availableAt <= :now)")
+                .setParameter("owner", owner)
+                .setParameter("leaseEnd", now.plus(lease))
+                .setParameter("ids", candidates)
+                .setParameter("maxAttempts", maxAttempts)
+                .setParameter("now", now)
+                .executeUpdate();
+
+        return em.createQuery("select o from LogOutbox o where o.claimedBy = :owner order by o.id", LogOutbox.class)
+                .setParameter("owner", owner)
+                .getResultList();
+    }
+
+    // Log 로 옮긴 outbox 삭제
+    @Transactional
+    public int deleteAll(List<Long> ids) {
+        return em.createQuery("delete from LogOutbox o where o.id in :ids")
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+
+    // 옮기지 못한 outbox - 선점을 풀고 retryDelay 뒤에 다시 시도한다.
+    @Transactional
+    public int release(List<Long> ids, Duration retryDelay) {
+        return em.createQuery("update LogOutbox o set o.attempts = o.attempts + 1, o.claimedBy = null," +
+                        " o.availableAt = :retryAt where o.id in :ids")
+                .setParameter("retryAt", LocalDateTime.now().plus(retryDelay))
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+}
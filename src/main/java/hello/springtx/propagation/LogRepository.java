@@ -1,5 +1,7 @@
 package hello.springtx.propagation;
 
+import hello.springtx.common.JpaSavepointTemplate;
+import hello.springtx.common.TransactionQueryCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Repository;
@@ -7,6 +9,7 @@ import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import java.util.List;
 import java.util.Optional;
 
 @Slf4j
@@ -14,12 +17,17 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class LogRepository {
 
+    static final String CACHE_REGION = "log";
+
     private final EntityManager em;
+    private final JpaSavepointTemplate savepointTemplate;
+    private final TransactionQueryCache queryCache;
 
     // 로그 저장 - 트랜잭션 적용
     @Transactional(propagation = Propagation.REQUIRES_NEW) // 내부 롤백이 발생해도 외부 트랜잭션은 영향을 받지 않게끔 처리
     public void save(Log logMessage) {
         log.info("log 저장");
+        queryCache.invalidate(CACHE_REGION);
         em.persist(logMessage);
 
         // 로그 저장 시 예외 발생
@@ -29,12 +37,45 @@ public class LogRepository {
         }
     }
 
-    // 로그 조회
-    public Optional<Log> find(String message) {
-        return em.createQuery("select l from Log l where l.message = :message", Log.class)
-                .setParameter("message", message)
-                .getResultList().stream().findAny();
+    // 로그 여러 건 저장 - 하나의 트랜잭션, 하나의 JDBC 배치로 저장한다. (하나라도 실패하면 모두 롤백)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void saveAll(List<Log> logMessages) {
+        log.info("log {}건 저장", logMessages.size());
+        queryCache.invalidate(CACHE_REGION);
+        for (Log logMessage : logMessages) {
+            em.persist(logMessage);
+
+            if (logMessage.getMessage().contains("로그예외")) {
+                log.info("log 저장 시 예외 발생");
+                throw new RuntimeException("예외 발생");
+            }
+        }
     }
 
+    // 로그 저장 - 트랜잭션을 새로 열지 않고, 호출한 쪽 트랜잭션의 커넥션에서 savepoint 로 저장한다.
+    // 실패하면 savepoint 까지만 롤백하고 false 를 반환한다. (@Transactional 이 없으므로 외부 트랜잭션이 rollback-only 가 되지 않는다)
+    public boolean saveInSavepoint(Log logMessage) {
+        queryCache.invalidate(CACHE_REGION);
+        return savepointTemplate.execute(session -> {
+            log.info("log 저장 (savepoint)");
+            session.insert(logMessage);
 
+            if (logMessage.getMessage().contains("로그예외")) {
+                log.info("log 저장 시 예외 발생");
+                throw new RuntimeException("예외 발생");
+            }
+        });
+    }
+
+    // 로그 조회 - message 인덱스를 타고 최대 한 건만 가져온다.
+    // 같은 트랜잭션 안에서 다시 조회하면 DB 에 가지 않는다. (TransactionQueryCache - 엔티티가 아닌 id 를 캐시한다)
+    public Optional<Log> find(String message) {
+        String query = "select l.id from Log l where l.message = :message";
+        Optional<Long> id = queryCache.get(CACHE_REGION, query, new Object[]{message}, () ->
+                em.createQuery(query, Long.class)
+                        .setParameter("message", message)
+                        .setMaxResults(1)
+                        .getResultStream().findFirst());
+        return id.map(logId -> em.find(Log.class, logId));
+    }
 }
@@ -1,11 +1,13 @@
 package hello.springtx.propagation;
 
+import hello.springtx.common.TransactionQueryCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import java.util.List;
 import java.util.Optional;
 
 @Slf4j
@@ -13,19 +15,49 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class MemberRepository {
 
+    static final String CACHE_REGION = "member";
+
     private final EntityManager em;
+    private final TransactionQueryCache queryCache;
 
     // member 저장 - 트랜잭션 적용
     @Transactional
     public void save(Member member) {
         log.info("member 저장");
+        queryCache.invalidate(CACHE_REGION);
         em.persist(member);
     }
 
-    // member 조회
+    // member 여러 건 저장 - 저장 후 flush/clear 해서 영속성 컨텍스트가 계속 커지지 않게 한다.
+    @Transactional
+    public void saveAll(List<Member> members) {
+        log.info("member {}건 저장", members.size());
+        queryCache.invalidate(CACHE_REGION);
+        for (Member member : members) {
+            em.persist(member);
+        }
+        em.flush();
+        em.clear();
+    }
+
+    // member 조회 - username 은 unique 인덱스가 있으므로 최대 한 건만 가져온다.
+    // id 로 찾은 뒤 em.find 로 꺼내므로 이미 영속성 컨텍스트에 있으면 DB 에 가지 않는다.
     public Optional<Member> find(String username) {
-        return em.createQuery("select m from Member m where m.username = :username", Member.class)
-                .setParameter("username", username)
-                .getResultList().stream().findAny();
+        return findId(username).map(id -> em.find(Member.class, id));
+    }
+
+    // member 존재 여부 조회 - 엔티티를 만들지 않고 id 만 조회한다. (영속성 컨텍스트에 아무것도 올라가지 않음)
+    public boolean existsByUsername(String username) {
+        return findId(username).isPresent();
+    }
+
+    // 같은 트랜잭션 안에서 다시 조회하면 DB 에 가지 않는다. (TransactionQueryCache - 엔티티가 아닌 id 를 캐시한다)
+    private Optional<Long> findId(String username) {
+        String query = "select m.id from Member m where m.username = :username";
+        return queryCache.get(CACHE_REGION, query, new Object[]{username}, () ->
+                em.createQuery(query, Long.class)
+                        .setParameter("username", username)
+                        .setMaxResults(1)
+                        .getResultStream().findFirst());
     }
 }
@@ -4,6 +4,15 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
@@ -12,11 +21,15 @@ public class MemberService {
 
     private final MemberRepository memberRepository;
     private final LogRepository logRepository;
+    private final LogOutboxRepository logOutboxRepository;
+    private final AsyncLogWriter asyncLogWriter;
+    private final LogBatchWriter logBatchWriter;
+    private final BulkJoinProperties bulkJoinProperties;
 
     // 서비스 계층에 @Transactional이 없을 때 커밋되는 상황
     @Transactional
     public void joinV1(String username) {
-        Member member = new Member(username);
+        Member member = newMember(username);
         Log logMessage = new Log(username);
 
         log.info("== memberRepository 호출 시작 ==");
@@ -30,7 +43,7 @@ public class MemberService {
 
     @Transactional
     public void joinV2(String username) {
-        Member member = new Member(username);
+        Member member = newMember(username);
         Log logMessage = new Log(username);
 
         log.info("== memberRepository 호출 시작 ==");
@@ -46,4 +59,129 @@ public class MemberService {
         }
         log.info("== logRepository 호출 종료 ==");
     }
+
+    // 로그는 큐에 넘기고 바로 반환한다. (REQUIRES_NEW 로 트랜잭션을 하나 더 열지 않는다)
+    // 로그 저장은 백그라운드에서 별도 트랜잭션으로 모아서 하기 때문에, 로그 저장이 실패해도 회원 저장에는 영향이 없다.
+    // 회원 저장이 커밋된 다음에 큐에 넘긴다. (회원이 롤백되면 로그도 남기지 않는다)
+    @Transactional
+    public void joinV3(String username) {
+        Member member = newMember(username);
+
+        log.info("== memberRepository 호출 시작 ==");
+        memberRepository.save(member);
+        log.info("== memberRepository 호출 종료 ==");
+
+        log.info("== asyncLogWriter 커밋 후 호출 등록 ==");
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                asyncLogWriter.write(username);
+            }
+        });
+    }
+
+    // 로그를 회원과 같은 트랜잭션에서 outbox 에 저장한다. (커넥션 하나, 커밋 한 번)
+    // 회원과 outbox 는 함께 커밋/롤백되고, outbox 는 LogOutboxRelay 가 나중에 Log 로 옮긴다.
+    @Transactional
+    public void joinV4(String username) {
+        Member member = newMember(username);
+        LogOutbox logOutbox = new LogOutbox(username);
+
+        log.info("== memberRepository 호출 시작 ==");
+        memberRepository.save(member);
+        log.info("== memberRepository 호출 종료 ==");
+
+        log.info("== logOutboxRepository 호출 시작 ==");
+        logOutboxRepository.save(logOutbox);
+        log.info("== logOutboxRepository 호출 종료 ==");
+    }
+
+    // 로그를 savepoint 안에서 저장한다. (REQUIRES_NEW 와 달리 커넥션 하나, 커밋 한 번)
+    // 로그 저장이 실패하면 savepoint 까지만 롤백되고, 회원은 커밋된다.
+    @Transactional
+    public void joinV5(String username) {
+        Member member = newMember(username);
+        Log logMessage = new Log(username);
+
+        log.info("== memberRepository 호출 시작 ==");
+        memberRepository.save(member);
+        log.info("== memberRepository 호출 종료 ==");
+
+        log.info("== logRepository 호출 시작 ==");
+        if (!logRepository.saveInSavepoint(logMessage)) {
+            log.info("log 저장에 실패했습니다. logMessage={}", logMessage.getMessage());
+            log.info("정상 흐름 반환");
+        }
+        log.info("== logRepository 호출 종료 ==");
+    }
+
+    // 가입 전에 username 중복을 확인한다. - 엔티티를 읽지 않고 id 만 조회한다. (existsByUsername)
+    // 동시에 같은 username 으로 가입하면 둘 다 통과할 수 있으므로 최종 보장은 unique 인덱스가 한다.
+    private Member newMember(String username) {
+        if (memberRepository.existsByUsername(username)) {
+            throw new IllegalStateException("이미 가입된 회원입니다. username=" + username);
+        }
+        return new Member(username);
+    }
+
+    // 대량 회원 가입 - chunk 단위로 회원을 하나의 트랜잭션에 저장하고, 로그는 chunk 단위로 별도 트랜잭션에 저장한다.
+    // chunk 마다 트랜잭션이 따로 커밋되어야 하기 때문에 이 메서드에는 @Transactional 을 붙이지 않는다.
+    // joinV2 와 같이 로그 저장이 실패해도 회원 저장은 유지된다.
+    public BulkJoinResult joinAll(Collection<String> usernames) {
+        List<String> all = new ArrayList<>(usernames);
+        BulkJoinResult result = new BulkJoinResult(all);
+        int chunkSize = bulkJoinProperties.getChunkSize();
+
+        for (int from = 0; from < all.size(); from += chunkSize) {
+            List<String> chunk = all.subList(from, Math.min(from + chunkSize, all.size()));
+            joinChunk(chunk, from, result);
+        }
+
+        log.info("대량 회원 가입 완료. joined={}, logFailed={}, failed={}", result.count(BulkJoinResult.Status.JOINED),
+                result.count(BulkJoinResult.Status.LOG_FAILED), result.count(BulkJoinResult.Status.FAILED));
+        return result;
+    }
+
+    private void joinChunk(List<String> chunk, int offset, BulkJoinResult result) {
+        Set<Integer> memberFailed = saveMembers(chunk);
+
+        List<String> joined = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            if (!memberFailed.contains(i)) {
+                joined.add(chunk.get(i));
+            }
+        }
+        Set<String> logFailed = new HashSet<>(logBatchWriter.write(joined));
+
+        for (int i = 0; i < chunk.size(); i++) {
+            if (memberFailed.contains(i)) {
+                result.mark(offset + i, BulkJoinResult.Status.FAILED);
+            } else if (logFailed.contains(chunk.get(i))) {
+                result.mark(offset + i, BulkJoinResult.Status.LOG_FAILED);
+            } else {
+                result.mark(offset + i, BulkJoinResult.Status.JOINED);
+            }
+        }
+    }
+
+    // chunk 저장이 실패하면 chunk 전체가 롤백되므로 한 건씩 다시 저장해서 실패한 회원만 골라낸다.
+    private Set<Integer> saveMembers(List<String> chunk) {
+        try {
+            memberRepository.saveAll(chunk.stream().map(Member::new).collect(Collectors.toList()));
+            return Set.of();
+        } catch (RuntimeException e) {
+            log.info("member chunk 저장 실패, 한 건씩 다시 저장합니다. size={}", chunk.size());
+        }
+
+        Set<Integer> failed = new HashSet<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            try {
+                memberRepository.save(new Member(chunk.get(i)));
+            } catch (RuntimeException e) {
+                log.info("member 저장에 실패했습니다. username={}", chunk.get(i));
+                failed.add(i);
+            }
+        }
+        return failed;
+    }
 }
@@ -0,0 +1,31 @@
+package hello.springtx.startup;
+
+import hello.springtx.order.PendingOrderReprocessor;
+import hello.springtx.propagation.AsyncLogWriter;
+import hello.springtx.propagation.LogOutboxRelay;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+
+/**
+ * spring.main.lazy-initialization=true (fast-startup 프로파일) 에서도 구동 시점에 만들어야 하는 빈
+ *
+ * - DataSource, PlatformTransactionManager : 첫 요청이 트랜잭션을 시작할 때 EntityManagerFactory 를 만들지 않도록
+ * - LogOutboxRelay : @Scheduled 는 만들어진 빈에만 등록된다.
+ * - PendingOrderReprocessor : 주입하는 빈이 없으므로 지연 초기화하면 springtx.order.reprocess.cron 이 실행되지 않는다.
+ * - AsyncLogWriter : 백그라운드 스레드를 @PostConstruct 에서 시작한다.
+ */
+@Configuration
+public class FastStartupConfig {
+
+    // BeanFactoryPostProcessor 단계에서 조회되므로 static 으로 등록한다.
+    @Bean
+    static LazyInitializationExcludeFilter eagerTransactionBeans() {
+        return LazyInitializationExcludeFilter.forBeanTypes(
+                DataSource.class, PlatformTransactionManager.class, LogOutboxRelay.class, AsyncLogWriter.class,
+                PendingOrderReprocessor.class);
+    }
+}
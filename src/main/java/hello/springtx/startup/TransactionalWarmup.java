@@ -0,0 +1,125 @@
+package hello.springtx.startup;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hello.springtx.order.NotEnoughMoneyException;
+import hello.springtx.order.Order;
+import hello.springtx.order.OrderRepository;
+import hello.springtx.order.OrderService;
+import hello.springtx.order.PaymentGateway;
+import hello.springtx.order.ShardedOrderService;
+import hello.springtx.propagation.LogRepository;
+import hello.springtx.propagation.MemberRepository;
+import hello.springtx.propagation.MemberService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 구동 직후(ApplicationReadyEvent) 트랜잭션 경로를 미리 실행해서 첫 요청의 지연을 없앤다.
+ * @PostConstruct 에서는 트랜잭션 AOP 가 적용되지 않으므로 준비 이벤트를 사용한다. (InitTxTest 참고)
+ *
+ * 1. 커넥션 풀을 minimumIdle 까지 채운다.
+ * 2. rollback-only 트랜잭션 안에서 조회 쿼리와 OrderService/MemberService 를 반복 호출한다.
+ *    - 결제 응답 시간(springtx.order.payment.latency)은 기다리지 않는다. (PaymentGateway.withoutLatency)
+ *    - Hibernate 쿼리 플랜 캐시, 트랜잭션 AOP 메타데이터, JIT 가 준비된다.
+ *    - 서비스는 REQUIRED 로 바깥 트랜잭션에 참여하므로 모두 롤백되어 데이터가 남지 않는다.
+ *      (REQUIRES_NEW 로 로그를 커밋하는 joinV1/joinV2 는 호출하지 않는다)
+ *    - shard 를 쓰면 워밍업 주문 username 의 shard 에서 트랜잭션을 시작한다. (ShardedOrderService.callInShardOf)
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "springtx.warmup", name = "enabled", havingValue = "true")
+public class TransactionalWarmup {
+
+    private static final String ORDER_USERNAME = "정상";
+
+    private final WarmupProperties properties;
+    private final DataSource dataSource;
+    private final PlatformTransactionManager transactionManager;
+    private final OrderService orderService;
+    private final ShardedOrderService shardedOrderService;
+    private final OrderRepository orderRepository;
+    private final MemberService memberService;
+    private final MemberRepository memberRepository;
+    private final LogRepository logRepository;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmup(ApplicationReadyEvent event) throws SQLException {
+        long start = System.nanoTime();
+
+        int connections = primeConnectionPool();
+        TransactionTemplate txTemplate = new TransactionTemplate(transactionManager);
+        PaymentGateway.withoutLatency(() -> {
+            for (int i = 0; i < properties.getIterations(); i++) {
+                String username = "warmup-" + i;
+                shardedOrderService.callInShardOf(ORDER_USERNAME, () -> {
+                    txTemplate.executeWithoutResult(status -> {
+                        warmupOnce(username);
+                        status.setRollbackOnly();
+                    });
+                    return null;
+                });
+            }
+            return null;
+        });
+
+        log.info("워밍업 완료 connections={}, iterations={}, {}ms",
+                connections, properties.getIterations(), (System.nanoTime() - start) / 1_000_000);
+
+        if (properties.isExitAfterReady()) {
+            log.info("워밍업 후 종료 (springtx.warmup.exit-after-ready)");
+            // System.exit 는 종료 훅에서 컨텍스트를 닫으므로 정상 종료 절차를 건너뛸 수 있다. 컨텍스트를 직접 닫고,
+            // 남은 스레드(스케줄러, 실행기)가 @PreDestroy 로 정리되면 main 이 끝나면서 JVM 이 종료된다.
+            int exitCode = SpringApplication.exit(event.getApplicationContext());
+            log.info("애플리케이션 컨텍스트를 닫았습니다. exitCode={}", exitCode);
+        }
+    }
+
+    private void warmupOnce(String username) {
+        memberRepository.existsByUsername(username);
+        logRepository.find(username);
+        orderRepository.findByIdempotencyKey(username);
+
+        Order order = new Order();
+        order.setUsername(ORDER_USERNAME);
+        try {
+            orderService.order(order);
+        } catch (NotEnoughMoneyException e) {
+            throw new IllegalStateException(e); // "정상" 주문은 잔고 부족이 나지 않는다.
+        }
+
+        memberService.joinV5(username);
+        memberRepository.find(username); // JPQL 실행 전 auto flush -> insert 경로까지 실행된다.
+    }
+
+    // 풀의 최소 커넥션을 동시에 빌렸다가 돌려준다.
+    private int primeConnectionPool() throws SQLException {
+        int size = dataSource.isWrapperFor(HikariDataSource.class)
+                ? Math.max(1, dataSource.unwrap(HikariDataSource.class).getMinimumIdle())
+                : 1;
+        List<Connection> borrowed = new ArrayList<>();
+        try {
+            for (int i = 0; i < size; i++) {
+                borrowed.add(dataSource.getConnection());
+            }
+        } finally {
+            for (Connection connection : borrowed) {
+                connection.close();
+            }
+        }
+        return size;
+    }
+}
@@ -0,0 +1,22 @@
+package hello.springtx.startup;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 구동 직후 워밍업 설정 (fast-startup 프로파일에서 켠다)
+ */
+@Getter
+@Setter
+@ConfigurationProperties("springtx.warmup")
+public class WarmupProperties {
+
+    private boolean enabled = false;
+
+    // 서비스 호출을 반복할 횟수 - JIT 가 자주 쓰는 경로를 컴파일하도록
+    private int iterations = 200;
+
+    // 워밍업이 끝나면 애플리케이션을 종료한다. - CDS 아카이브를 만들 때(./gradlew cdsArchive) 사용
+    private boolean exitAfterReady = false;
+}
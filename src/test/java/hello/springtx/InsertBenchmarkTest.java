@@ -0,0 +1,86 @@
+package hello.springtx;
+
+import hello.springtx.order.Order;
+import hello.springtx.order.OrderRepository;
+import hello.springtx.propagation.Member;
+import hello.springtx.propagation.MemberRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.IntConsumer;
+
+/**
+ * id 할당 방식과 JDBC 배치에 따른 insert 처리량 비교
+ * - before : 저장할 때마다 시퀀스 호출(allocation_size=1), JDBC 배치 없음
+ * - after  : pooled-lo(allocation_size=50), JDBC 배치 + 정렬된 insert
+ *
+ * ./gradlew benchmark --tests hello.springtx.InsertBenchmarkTest
+ */
+@Slf4j
+@Tag("benchmark")
+class InsertBenchmarkTest {
+
+    static final int TX_COUNT = 50;
+    static final int INSERTS_PER_TX = 200;
+
+    @Test
+    void insertsPerSecond() {
+        run("before",
+                "spring.jpa.properties.springtx.id.allocation_size=1",
+                "spring.jpa.properties.hibernate.jdbc.batch_size=0",
+                "spring.jpa.properties.hibernate.order_inserts=false");
+        run("after",
+                "spring.jpa.properties.springtx.id.allocation_size=50",
+                "spring.jpa.properties.hibernate.jdbc.batch_size=100",
+                "spring.jpa.properties.hibernate.order_inserts=true");
+    }
+
+    private void run(String scenario, String... properties) {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(SpringtxApplication.class)
+                .properties(properties)
+                .properties("logging.level.org.hibernate.SQL=OFF",
+                        "logging.level.org.springframework.transaction.interceptor=OFF",
+                        "logging.level.org.springframework.orm.jpa.JpaTransactionManager=OFF",
+                        "logging.level.org.hibernate.resource.transaction=OFF",
+                        "logging.level.hello.springtx=WARN")
+                .run()) {
+
+            TransactionTemplate txTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+            MemberRepository memberRepository = context.getBean(MemberRepository.class);
+            OrderRepository orderRepository = context.getBean(OrderRepository.class);
+
+            IntConsumer saveMember = i -> memberRepository.save(new Member(scenario + "-member-" + i));
+            IntConsumer saveOrder = i -> {
+                Order order = new Order();
+                order.setUsername("정상");
+                order.setPayStatus("완료");
+                orderRepository.save(order);
+            };
+
+            measure(txTemplate, saveMember, 0); // warm up
+            measure(txTemplate, saveOrder, 0);
+
+            log.warn("[{}] MemberRepository.save : {} inserts/sec", scenario, measure(txTemplate, saveMember, TX_COUNT * INSERTS_PER_TX));
+            log.warn("[{}] OrderRepository.save  : {} inserts/sec", scenario, measure(txTemplate, saveOrder, 0));
+        }
+    }
+
+    private long measure(TransactionTemplate txTemplate, IntConsumer save, int offset) {
+        long start = System.nanoTime();
+        for (int tx = 0; tx < TX_COUNT; tx++) {
+            int base = offset + tx * INSERTS_PER_TX;
+            txTemplate.executeWithoutResult(status -> {
+                for (int i = 0; i < INSERTS_PER_TX; i++) {
+                    save.accept(base + i);
+                }
+            });
+        }
+        long elapsed = System.nanoTime() - start;
+        return (long) TX_COUNT * INSERTS_PER_TX * 1_000_000_000L / elapsed;
+    }
+}
@@ -0,0 +1,60 @@
+package hello.springtx;
+
+import hello.springtx.order.NotEnoughMoneyException;
+import hello.springtx.order.Order;
+import hello.springtx.order.OrderService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * 구동 시간과 첫 요청 지연 비교
+ * - default      : 모든 빈을 구동 시점에 만들고, 워밍업 없음
+ * - fast-startup : 지연 초기화 + 백그라운드 JPA 초기화 + 준비 이벤트 워밍업
+ *
+ * 구동 시간은 run() 이 반환될 때까지(준비 이벤트 워밍업 포함), 첫 요청은 OrderService.order 한 번의 시간이다.
+ * CDS 효과는 JVM 을 새로 띄워야 하므로 ./gradlew cdsArchive 후 bootRun -Pcds 의 로그로 비교한다.
+ *
+ * ./gradlew benchmark --tests hello.springtx.StartupBenchmarkTest
+ */
+@Slf4j
+@Tag("benchmark")
+class StartupBenchmarkTest {
+
+    static final int RUNS = 5;
+
+    @Test
+    void startupAndFirstRequest() throws NotEnoughMoneyException {
+        run("warmup(jvm)"); // 처음 한 번은 클래스 로딩 비용이 커서 버린다.
+        run("default");
+        run("fast-startup", "spring.profiles.active=fast-startup");
+    }
+
+    private void run(String scenario, String... properties) throws NotEnoughMoneyException {
+        long startupTotal = 0;
+        long firstRequestTotal = 0;
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            try (ConfigurableApplicationContext context = new SpringApplicationBuilder(SpringtxApplication.class)
+                    .properties(properties)
+                    .properties("spring.datasource.generate-unique-name=true",
+                            "logging.level.org.hibernate.SQL=OFF",
+                            "logging.level.hello.springtx=WARN")
+                    .run()) {
+                long ready = System.nanoTime();
+
+                Order order = new Order();
+                order.setUsername("정상");
+                context.getBean(OrderService.class).order(order);
+                long firstRequest = System.nanoTime();
+
+                startupTotal += ready - start;
+                firstRequestTotal += firstRequest - ready;
+            }
+        }
+        log.warn("[{}] startup={}ms, first request={}us", scenario,
+                startupTotal / RUNS / 1_000_000, firstRequestTotal / RUNS / 1_000);
+    }
+}
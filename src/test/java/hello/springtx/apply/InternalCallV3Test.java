@@ -0,0 +1,70 @@
+package hello.springtx.apply;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 컴파일 타임 위빙으로 내부 호출 문제 해결 (InternalCallV1Test 와 같은 CallService)
+ * ./gradlew test -PaspectjWeaving --tests hello.springtx.apply.InternalCallV3Test
+ */
+@Slf4j
+@SpringBootTest
+@EnabledIfSystemProperty(named = "springtx.tx.mode", matches = "aspectj")
+public class InternalCallV3Test {
+
+    @Autowired CallService callService;
+
+    @Test
+    void printProxy() {
+        log.info("callService class={}", callService.getClass());
+        // InternalCallV3Test$CallService - 프록시가 아닌 원본 클래스
+        assertThat(AopUtils.isAopProxy(callService)).isFalse();
+    }
+
+    @Test
+    void externalCall() {
+        // external() 은 트랜잭션이 없지만, 내부에서 호출한 internal() 은 트랜잭션이 적용된다.
+        assertThat(callService.external()).isTrue();
+    }
+
+    @TestConfiguration
+    static class InternalCallV3TestConfig {
+
+        @Bean
+        CallService callService() {
+            return new CallService();
+        }
+    }
+
+    @Slf4j
+    static class CallService {
+
+        public boolean external() {
+            log.info("call external");
+            printTxInfo();
+            return internal(); // this.internal() 이지만 트랜잭션 코드가 internal() 안에 위빙되어 있다.
+        }
+
+        @Transactional
+        public boolean internal() {
+            log.info("call internal");
+            return printTxInfo();
+        }
+
+        private boolean printTxInfo() {
+            boolean txActive = TransactionSynchronizationManager.isActualTransactionActive();
+            log.info("tx active : {}", txActive);
+            return txActive;
+        }
+    }
+}
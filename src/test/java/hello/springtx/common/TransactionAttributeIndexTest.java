@@ -0,0 +1,70 @@
+package hello.springtx.common;
+
+import hello.springtx.order.Order;
+import hello.springtx.order.OrderService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.interceptor.TransactionAttribute;
+import org.springframework.transaction.interceptor.TransactionAttributeSource;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Objects;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 빌드 시 만든 인덱스가 스프링이 리플렉션으로 찾는 속성(AnnotationTransactionAttributeSource)과 같은지 검증한다.
+ */
+@SpringBootTest
+class TransactionAttributeIndexTest {
+
+    @Autowired TransactionAttributeSource transactionAttributeSource;
+
+    final TransactionAttributeIndex index = TransactionAttributeIndex.load(ClassUtils.getDefaultClassLoader());
+    final AnnotationTransactionAttributeSource reflective = new AnnotationTransactionAttributeSource();
+
+    @Test
+    void indexed() {
+        assertThat(index.classes()).contains(
+                "hello.springtx.order.OrderService",
+                "hello.springtx.propagation.MemberService",
+                "hello.springtx.apply.TxLevelTest$LevelService", // 클래스 readOnly, 메서드 readOnly=false
+                "hello.springtx.exception.RollbackTest$RollbackService"); // rollbackFor
+        assertThat(transactionAttributeSource).isInstanceOf(IndexedTransactionAttributeSource.class);
+    }
+
+    // 인덱스에 있는 클래스의 모든 public 메서드가 리플렉션 결과와 같다. (트랜잭션이 없는 메서드 포함)
+    @Test
+    void sameAsReflection() throws ClassNotFoundException {
+        for (String className : index.classes()) {
+            Class<?> type = ClassUtils.forName(className, ClassUtils.getDefaultClassLoader());
+            for (Method method : type.getMethods()) {
+                if (method.getDeclaringClass() == Object.class || Modifier.isStatic(method.getModifiers())
+                        || method.isBridge() || method.isSynthetic()) {
+                    continue;
+                }
+                TransactionAttribute expected = reflective.getTransactionAttribute(method, type);
+                TransactionAttribute indexed = index.get(type, method);
+                assertThat(Objects.toString(indexed))
+                        .as(TransactionAttributeIndex.key(type, method))
+                        .isEqualTo(Objects.toString(expected));
+            }
+        }
+    }
+
+    // 트랜잭션 프록시는 인덱스의 속성을 쓴다. - 인덱스를 읽을 때 만든 객체를 그대로 돌려준다.
+    @Test
+    void usedByProxy() throws NoSuchMethodException {
+        Method order = OrderService.class.getMethod("order", Order.class);
+
+        TransactionAttribute attribute = transactionAttributeSource.getTransactionAttribute(order, OrderService.class);
+
+        assertThat(attribute).isNotNull();
+        assertThat(attribute.toString()).isEqualTo(reflective.getTransactionAttribute(order, OrderService.class).toString());
+        assertThat(transactionAttributeSource.getTransactionAttribute(order, OrderService.class)).isSameAs(attribute);
+    }
+}
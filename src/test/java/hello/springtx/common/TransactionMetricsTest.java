@@ -0,0 +1,95 @@
+package hello.springtx.common;
+
+import hello.springtx.order.NotEnoughMoneyException;
+import hello.springtx.order.Order;
+import hello.springtx.order.OrderService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.interceptor.TransactionAttribute;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
+import org.springframework.transaction.support.ResourceTransactionManager;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class TransactionMetricsTest {
+
+    static final String ORDER_METHOD = "hello.springtx.order.OrderService.order";
+
+    @Autowired OrderService orderService;
+    @Autowired MeterRegistry meterRegistry;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired ObjectProvider<MeterRegistry> meterRegistryProvider;
+
+    @Test
+    void commitAndRollback() throws NotEnoughMoneyException {
+        // given
+        Order complete = new Order();
+        complete.setUsername("정상");
+        Order runtimeException = new Order();
+        runtimeException.setUsername("예외");
+        Order bizException = new Order();
+        bizException.setUsername("잔고부족");
+
+        // when
+        orderService.order(complete);
+        assertThatThrownBy(() -> orderService.order(runtimeException)).isInstanceOf(RuntimeException.class);
+        assertThatThrownBy(() -> orderService.order(bizException)).isInstanceOf(NotEnoughMoneyException.class);
+
+        // then
+        assertThat(meterRegistry.get("springtx.tx.begin").tag("method", ORDER_METHOD).tag("propagation", "REQUIRED")
+                .timer().count()).isGreaterThanOrEqualTo(3);
+        assertThat(meterRegistry.get("springtx.tx.completion").tag("method", ORDER_METHOD).tag("outcome", "commit")
+                .timer().count()).isGreaterThanOrEqualTo(2); // 정상, 잔고부족(체크 예외는 커밋)
+        assertThat(meterRegistry.get("springtx.tx.completion").tag("method", ORDER_METHOD).tag("outcome", "rollback")
+                .timer().count()).isGreaterThanOrEqualTo(1);
+        assertThat(meterRegistry.get("springtx.tx.hold").tag("method", ORDER_METHOD)
+                .timer().count()).isGreaterThanOrEqualTo(3);
+        assertThat(meterRegistry.get("springtx.tx.rollback.decision").tag("method", ORDER_METHOD)
+                .tag("exception", NotEnoughMoneyException.class.getName()).tag("decision", "commit")
+                .counter().count()).isGreaterThanOrEqualTo(1);
+    }
+
+    // 같은 트랜잭션 애스펙트를 여러 번 후처리해도(aspectOf() 싱글톤을 컨텍스트마다 후처리) 롤백 결정은 한 번만 기록한다.
+    @Test
+    void rewrapIsIdempotent() throws NoSuchMethodException {
+        BeanPostProcessor postProcessor = TransactionMetricsConfig.transactionMetricsPostProcessor(meterRegistryProvider);
+        TransactionInterceptor aspect = new TransactionInterceptor();
+        aspect.setTransactionAttributeSource(new AnnotationTransactionAttributeSource());
+        postProcessor.postProcessAfterInitialization(aspect, "transactionAspect");
+        postProcessor.postProcessAfterInitialization(aspect, "transactionAspect");
+
+        TransactionAttribute attr = aspect.getTransactionAttributeSource()
+                .getTransactionAttribute(OrderService.class.getMethod("order", Order.class), OrderService.class);
+        double before = rollbackDecisions(UnsupportedOperationException.class);
+        assertThat(attr.rollbackOn(new UnsupportedOperationException())).isTrue();
+
+        assertThat(rollbackDecisions(UnsupportedOperationException.class) - before).isEqualTo(1);
+    }
+
+    private double rollbackDecisions(Class<? extends Throwable> exception) {
+        Counter counter = meterRegistry.find("springtx.tx.rollback.decision").tag("method", ORDER_METHOD)
+                .tag("exception", exception.getName()).tag("decision", "rollback").counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    // 지표를 기록해도 트랜잭션 매니저의 인터페이스는 그대로 유지된다.
+    @Test
+    void keepsTransactionManagerInterfaces() {
+        assertThat(transactionManager).isInstanceOf(ResourceTransactionManager.class);
+        assertThat(((ResourceTransactionManager) transactionManager).getResourceFactory()).isInstanceOf(EntityManagerFactory.class);
+        assertThat(AopProxyUtils.getSingletonTarget(transactionManager)).isInstanceOf(JpaTransactionManager.class);
+    }
+}
@@ -0,0 +1,98 @@
+package hello.springtx.common;
+
+import hello.springtx.propagation.Member;
+import hello.springtx.propagation.MemberRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class TransactionQueryCacheTest {
+
+    @Autowired TransactionQueryCache queryCache;
+    @Autowired MemberRepository memberRepository;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    // 같은 트랜잭션 안에서 같은 조회는 한 번만 실행한다. 트랜잭션이 끝나면 캐시를 버린다.
+    @Test
+    void cachedWithinTransaction() {
+        AtomicInteger loads = new AtomicInteger();
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        tx.executeWithoutResult(status -> {
+            queryCache.get("test", "q", new Object[]{"a"}, loads::incrementAndGet);
+            queryCache.get("test", "q", new Object[]{"a"}, loads::incrementAndGet);
+            queryCache.get("test", "q", new Object[]{"b"}, loads::incrementAndGet); // 파라미터가 다르면 다시 조회
+            assertThat(loads.get()).isEqualTo(2);
+        });
+        assertThat(TransactionSynchronizationManager.getResource(queryCache)).isNull();
+
+        tx.executeWithoutResult(status -> queryCache.get("test", "q", new Object[]{"a"}, loads::incrementAndGet));
+        assertThat(loads.get()).isEqualTo(3);
+
+        // 트랜잭션 밖에서는 캐시하지 않는다.
+        queryCache.get("test", "q", new Object[]{"a"}, loads::incrementAndGet);
+        queryCache.get("test", "q", new Object[]{"a"}, loads::incrementAndGet);
+        assertThat(loads.get()).isEqualTo(5);
+
+        // SUPPORTS - 동기화는 활성화되지만 실제 트랜잭션이 없으므로 캐시하지 않는다.
+        TransactionTemplate supports = new TransactionTemplate(transactionManager);
+        supports.setPropagationBehavior(TransactionDefinition.PROPAGATION_SUPPORTS);
+        supports.executeWithoutResult(status -> {
+            queryCache.get("test", "q", new Object[]{"a"}, loads::incrementAndGet);
+            queryCache.get("test", "q", new Object[]{"a"}, loads::incrementAndGet);
+        });
+        assertThat(loads.get()).isEqualTo(7);
+    }
+
+    // 다른 스레드의 트랜잭션이 저장해도 이 트랜잭션의 캐시는 그대로다.
+    @Test
+    void otherTransactionDoesNotInvalidate() {
+        AtomicInteger loads = new AtomicInteger();
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        tx.executeWithoutResult(status -> {
+            queryCache.get("test", "q", new Object[]{"a"}, loads::incrementAndGet);
+
+            CompletableFuture.runAsync(() -> tx.executeWithoutResult(other -> queryCache.invalidate("test"))).join();
+
+            queryCache.get("test", "q", new Object[]{"a"}, loads::incrementAndGet);
+            assertThat(loads.get()).isEqualTo(1);
+
+            queryCache.invalidate("test"); // 자기 트랜잭션의 저장은 무효로 만든다.
+            queryCache.get("test", "q", new Object[]{"a"}, loads::incrementAndGet);
+            assertThat(loads.get()).isEqualTo(2);
+        });
+    }
+
+    // 저장하면 같은 region 의 캐시가 무효가 된다. - REQUIRES_NEW 로 보류된 바깥 트랜잭션의 캐시도 포함
+    @Test
+    void invalidatedBySave() {
+        String username = "queryCacheMember";
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        TransactionTemplate requiresNew = new TransactionTemplate(transactionManager);
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        tx.executeWithoutResult(status -> {
+            assertThat(memberRepository.find(username)).isEmpty();
+            assertThat(memberRepository.existsByUsername(username)).isFalse();
+
+            requiresNew.executeWithoutResult(inner -> memberRepository.save(new Member(username)));
+
+            Optional<Member> saved = memberRepository.find(username);
+            assertThat(saved).isPresent();
+            assertThat(memberRepository.find(username).get()).isSameAs(saved.get()); // 캐시한 id 로 같은 영속 엔티티
+            assertThat(memberRepository.existsByUsername(username)).isTrue();
+        });
+    }
+}
@@ -0,0 +1,74 @@
+package hello.springtx.common;
+
+import hello.springtx.SpringtxApplication;
+import hello.springtx.order.Order;
+import hello.springtx.order.OrderService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 주문 10,000건을 한꺼번에 제출했을 때 플랫폼 스레드(200개)와 가상 스레드의 처리량 비교
+ * 결제 응답 시간 20ms, 커넥션 풀 10개
+ * 가상 스레드만 커넥션 풀 크기로 동시 호출을 제한한다. 플랫폼 스레드는 스레드 풀 크기가 제한이다.
+ *
+ * ./gradlew benchmark --tests hello.springtx.common.VirtualThreadLoadTest -PruntimeJdk=21
+ */
+@Slf4j
+@Tag("benchmark")
+class VirtualThreadLoadTest {
+
+    static final int ORDERS = 10_000;
+
+    @Test
+    void platformVsVirtual() {
+        // 한쪽만 측정하면 비교할 수 없으므로 어느 쪽도 실행하기 전에 확인한다.
+        assumeTrue(Runtime.version().feature() >= 21, "JDK 21 이상에서만 가상 스레드를 측정할 수 있다.");
+
+        long platform = run(false);
+        long virtual = run(true);
+        log.warn("[platform] {} orders/sec, [virtual] {} orders/sec", platform, virtual);
+    }
+
+    private long run(boolean virtualThreads) {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(SpringtxApplication.class)
+                .properties("spring.datasource.hikari.maximum-pool-size=10",
+                        "springtx.order.payment.latency=20ms",
+                        "springtx.executor.virtual-threads=" + virtualThreads,
+                        "springtx.executor.max-concurrent-calls=10",
+                        "logging.level.org.hibernate.SQL=OFF",
+                        "logging.level.hello.springtx=WARN")
+                .run()) {
+
+            ServiceCallExecutor executor = context.getBean(ServiceCallExecutor.class);
+            assertThat(executor.isVirtual()).isEqualTo(virtualThreads);
+            OrderService orderService = context.getBean(OrderService.class);
+
+            long start = System.nanoTime();
+            List<CompletableFuture<Boolean>> results = new ArrayList<>(ORDERS);
+            for (int i = 0; i < ORDERS; i++) {
+                results.add(executor.submit(() -> {
+                    Order order = new Order();
+                    order.setUsername("정상");
+                    orderService.order(order);
+                    // 트랜잭션이 끝난 뒤 작업 스레드에 트랜잭션 리소스가 남아 있으면 안 된다.
+                    return TransactionSynchronizationManager.getResourceMap().isEmpty();
+                }));
+            }
+            results.forEach(result -> assertThat(result.join()).isTrue());
+            long elapsed = System.nanoTime() - start;
+
+            return ORDERS * 1_000_000_000L / elapsed;
+        }
+    }
+}
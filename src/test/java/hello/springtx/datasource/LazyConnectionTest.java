@@ -0,0 +1,82 @@
+package hello.springtx.datasource;
+
+import hello.springtx.order.Order;
+import hello.springtx.order.OrderRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {"springtx.datasource.lazy-connection=true",
+        "springtx.log.outbox.poll-interval-ms=600000"}) // 측정 중에 relay 가 커넥션을 쓰지 않도록
+class LazyConnectionTest {
+
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired OrderRepository orderRepository;
+    @Autowired MeterRegistry meterRegistry;
+    @Autowired DataSource dataSource;
+
+    // SQL 없이 롤백되는 트랜잭션은 풀에서 커넥션을 꺼내지 않는다.
+    @Test
+    void noStatementNoConnection() {
+        TransactionTemplate txTemplate = new TransactionTemplate(transactionManager);
+        double logical = count("springtx.datasource.connection.logical");
+        double physical = count("springtx.datasource.connection.physical");
+
+        assertThatThrownBy(() -> txTemplate.executeWithoutResult(status -> {
+            throw new IllegalStateException("검증 실패");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(count("springtx.datasource.connection.logical")).isEqualTo(logical + 1);
+        assertThat(count("springtx.datasource.connection.physical")).isEqualTo(physical);
+    }
+
+    // 첫 SQL 을 실행할 때 커넥션을 꺼내고, 점유 시간이 기록된다.
+    @Test
+    void connectionOnFirstStatement() {
+        TransactionTemplate txTemplate = new TransactionTemplate(transactionManager);
+        double physical = count("springtx.datasource.connection.physical");
+        long holds = meterRegistry.get("springtx.datasource.connection.hold").timer().count();
+
+        txTemplate.executeWithoutResult(status -> {
+            Order order = new Order();
+            order.setUsername("정상");
+            orderRepository.saveAndFlush(order);
+        });
+
+        assertThat(count("springtx.datasource.connection.physical")).isEqualTo(physical + 1);
+        assertThat(meterRegistry.get("springtx.datasource.connection.hold").timer().count()).isEqualTo(holds + 1);
+    }
+
+    // JPA 트랜잭션과 JdbcTemplate 이 같은 dataSource 빈을 쓰므로 트랜잭션 안에서 같은 커넥션을 쓴다.
+    @Test
+    void jdbcTemplateJoinsJpaTransaction() {
+        TransactionTemplate txTemplate = new TransactionTemplate(transactionManager);
+        double physical = count("springtx.datasource.connection.physical");
+
+        txTemplate.executeWithoutResult(status -> {
+            Order order = new Order();
+            order.setUsername("정상");
+            orderRepository.saveAndFlush(order);
+
+            // 커밋 전이므로 같은 커넥션에서만 보인다.
+            assertThat(new JdbcTemplate(dataSource).queryForObject("select count(*) from orders where id = ?",
+                    Integer.class, order.getId())).isEqualTo(1);
+            status.setRollbackOnly();
+        });
+
+        assertThat(count("springtx.datasource.connection.physical")).isEqualTo(physical + 1);
+    }
+
+    private double count(String name) {
+        return meterRegistry.get(name).counter().count();
+    }
+}
@@ -0,0 +1,111 @@
+package hello.springtx.datasource;
+
+import hello.springtx.SpringtxApplication;
+import hello.springtx.propagation.Log;
+import hello.springtx.propagation.LogRepository;
+import hello.springtx.propagation.Member;
+import hello.springtx.propagation.MemberRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 커넥션 풀 크기(2)만큼의 스레드가 외부 트랜잭션으로 커넥션을 하나씩 잡은 상태에서
+ * 동시에 REQUIRES_NEW(LogRepository.save)로 커넥션을 하나 더 요청하는 상황
+ */
+@Slf4j
+class PoolStarvationGuardTest {
+
+    static final int POOL_SIZE = 2;
+
+    // 예비 풀이 없으면 모든 스레드가 connection-timeout 까지 기다리다 실패한다.
+    @Test
+    void starvation() throws Exception {
+        try (ConfigurableApplicationContext context = start(0)) {
+            assertThat(joinConcurrently(context, "starvation")).isEqualTo(0);
+            assertThat(guard(context).getPeakWaitingWhileHolding()).isEqualTo(POOL_SIZE);
+        }
+    }
+
+    // 예비 풀이 있으면 두 번째 커넥션은 예비 풀에서 꺼내므로 모두 성공한다.
+    @Test
+    void guard() throws Exception {
+        try (ConfigurableApplicationContext context = start(POOL_SIZE)) {
+            assertThat(joinConcurrently(context, "guard")).isEqualTo(POOL_SIZE);
+            assertThat(guard(context).getReserveAcquisitions()).isEqualTo(POOL_SIZE);
+            assertThat(guard(context).getPeakWaitingWhileHolding()).isZero(); // 예비 풀에서 꺼낸 커넥션은 기다린 것으로 세지 않는다.
+        }
+    }
+
+    private ConfigurableApplicationContext start(int reservePoolSize) {
+        return new SpringApplicationBuilder(SpringtxApplication.class)
+                .properties("spring.datasource.hikari.maximum-pool-size=" + POOL_SIZE,
+                        "spring.datasource.hikari.connection-timeout=250",
+                        "springtx.datasource.starvation.enabled=true",
+                        "springtx.datasource.starvation.reserve-pool-size=" + reservePoolSize,
+                        "springtx.log.outbox.poll-interval-ms=600000")
+                .run();
+    }
+
+    private PoolStarvationGuardDataSource guard(ConfigurableApplicationContext context) throws Exception {
+        return context.getBean(DataSource.class).unwrap(PoolStarvationGuardDataSource.class);
+    }
+
+    // joinV1 과 같은 흐름 - 외부 트랜잭션에서 member 저장 후 REQUIRES_NEW 로 log 저장
+    private int joinConcurrently(ConfigurableApplicationContext context, String prefix) throws Exception {
+        TransactionTemplate txTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        MemberRepository memberRepository = context.getBean(MemberRepository.class);
+        LogRepository logRepository = context.getBean(LogRepository.class);
+        CyclicBarrier allHoldingConnection = new CyclicBarrier(POOL_SIZE);
+
+        ExecutorService executor = Executors.newFixedThreadPool(POOL_SIZE);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < POOL_SIZE; i++) {
+            String username = prefix + "_" + i;
+            results.add(executor.submit(() -> {
+                try {
+                    txTemplate.executeWithoutResult(status -> {
+                        memberRepository.save(new Member(username));
+                        await(allHoldingConnection);
+                        logRepository.save(new Log(username));
+                    });
+                    return true;
+                } catch (RuntimeException e) {
+                    log.info("join 실패. username={}, ex={}", username, e.toString());
+                    return false;
+                }
+            }));
+        }
+
+        int success = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get(10, TimeUnit.SECONDS)) {
+                success++;
+            }
+        }
+        executor.shutdown();
+        return success;
+    }
+
+    private void await(CyclicBarrier barrier) {
+        try {
+            barrier.await(5, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
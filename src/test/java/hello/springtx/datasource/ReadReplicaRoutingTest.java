@@ -0,0 +1,93 @@
+package hello.springtx.datasource;
+
+import hello.springtx.propagation.MemberRepository;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 로컬 H2 메모리 DB 두 개를 replica 로 사용한다.
+ * replica 에만 있는 회원은 읽기 전용 트랜잭션에서만 조회된다.
+ */
+@SpringBootTest(properties = {
+        "springtx.datasource.replica.enabled=true",
+        "springtx.datasource.replica.urls[0]=" + ReadReplicaRoutingTest.REPLICA_0,
+        "springtx.datasource.replica.urls[1]=" + ReadReplicaRoutingTest.REPLICA_1
+})
+class ReadReplicaRoutingTest {
+
+    static final String REPLICA_0 = "jdbc:h2:mem:springtx-replica-0;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_1 = "jdbc:h2:mem:springtx-replica-1;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_ONLY = "replicaOnly";
+
+    @Autowired MemberRepository memberRepository;
+    @Autowired PlatformTransactionManager txManager;
+    @Autowired EntityManager em;
+
+    @BeforeAll
+    static void createReplicas() {
+        for (String url : new String[]{REPLICA_0, REPLICA_1}) {
+            JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(url, "sa", ""));
+            replica.execute("create table if not exists member (id bigint not null, username varchar(255), primary key (id))");
+            replica.update("merge into member key (id) values (1, ?)", REPLICA_ONLY);
+            replica.update("merge into member key (id) values (2, ?)", url); // 어느 replica 에서 읽었는지 표시
+        }
+    }
+
+    @Test
+    void readOnlyGoesToReplica() {
+        TransactionTemplate readOnly = new TransactionTemplate(txManager);
+        readOnly.setReadOnly(true);
+
+        // 두 번 조회해서 두 replica 를 모두 거치게 한다. (round robin)
+        for (int i = 0; i < 2; i++) {
+            readOnly.executeWithoutResult(status -> {
+                assertThat(memberRepository.find(REPLICA_ONLY)).isPresent();
+
+                // 읽기 전용 트랜잭션 - flush 하지 않고, 스냅샷을 만들지 않는다.
+                Session session = em.unwrap(Session.class);
+                assertThat(session.getHibernateFlushMode()).isEqualTo(FlushMode.MANUAL);
+                assertThat(session.isDefaultReadOnly()).isTrue();
+            });
+        }
+    }
+
+    // 읽기 전용 트랜잭션은 replica 를 번갈아 가며 사용한다.
+    @Test
+    void roundRobinAcrossReplicas() {
+        TransactionTemplate readOnly = new TransactionTemplate(txManager);
+        readOnly.setReadOnly(true);
+
+        List<Object> replicas = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            replicas.add(readOnly.execute(status ->
+                    em.createNativeQuery("select username from member where id = 2").getSingleResult()));
+        }
+
+        assertThat(replicas).containsOnly(REPLICA_0, REPLICA_1);
+        assertThat(replicas.get(0)).isNotEqualTo(replicas.get(1));
+        assertThat(replicas.get(2)).isEqualTo(replicas.get(0));
+        assertThat(replicas.get(3)).isEqualTo(replicas.get(1));
+    }
+
+    @Test
+    void readWriteGoesToPrimary() {
+        TransactionTemplate readWrite = new TransactionTemplate(txManager);
+
+        readWrite.executeWithoutResult(status ->
+                assertThat(memberRepository.find(REPLICA_ONLY)).isEmpty());
+    }
+}
@@ -0,0 +1,85 @@
+package hello.springtx.order;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class IdempotentOrderServiceTest {
+
+    @Autowired
+    IdempotentOrderService idempotentOrderService;
+    @Autowired
+    OrderRepository orderRepository;
+    @Autowired
+    OrderService orderService;
+
+    // 같은 키로 다시 주문하면 처음 주문 결과를 돌려주고, 주문은 하나만 남는다.
+    @Test
+    void duplicateComplete() throws NotEnoughMoneyException {
+
+        // given
+        Order first = newOrder("정상");
+        Order retry = newOrder("정상");
+
+        // when
+        idempotentOrderService.order("duplicateComplete", first);
+        long count = orderRepository.count();
+        idempotentOrderService.order("duplicateComplete", retry);
+
+        // then
+        assertThat(retry.getId()).isEqualTo(first.getId());
+        assertThat(retry.getPayStatus()).isEqualTo("완료");
+        assertThat(orderRepository.findByIdempotencyKey("duplicateComplete")).isPresent();
+        assertThat(orderRepository.count()).isEqualTo(count);
+    }
+
+    // 잔고 부족으로 대기 상태인 주문을 다시 제출하면 같은 비즈니스 예외를 돌려준다.
+    @Test
+    void duplicateBizException() {
+
+        // given
+        Order first = newOrder("잔고부족");
+        Order retry = newOrder("잔고부족");
+
+        // when
+        assertThatThrownBy(() -> idempotentOrderService.order("duplicateBizException", first))
+                .isInstanceOf(NotEnoughMoneyException.class);
+        assertThatThrownBy(() -> idempotentOrderService.order("duplicateBizException", retry))
+                .isInstanceOf(NotEnoughMoneyException.class);
+
+        // then
+        assertThat(retry.getId()).isEqualTo(first.getId());
+        assertThat(orderRepository.findById(first.getId()).get().getPayStatus()).isEqualTo("대기");
+    }
+
+    // 대기 주문이 나중에 완료되면 다시 제출했을 때 완료 결과를 돌려준다. (대기 결과를 캐시하지 않는다)
+    @Test
+    void pendingIsNotCached() throws NotEnoughMoneyException {
+
+        // given
+        Order first = newOrder("잔고부족");
+        assertThatThrownBy(() -> idempotentOrderService.order("pendingIsNotCached", first))
+                .isInstanceOf(NotEnoughMoneyException.class);
+        assertThatThrownBy(() -> idempotentOrderService.order("pendingIsNotCached", newOrder("잔고부족")))
+                .isInstanceOf(NotEnoughMoneyException.class);
+
+        // when
+        orderService.updatePayStatus(first.getId(), "완료"); // 재처리로 결제 완료
+        Order retry = newOrder("잔고부족");
+        idempotentOrderService.order("pendingIsNotCached", retry);
+
+        // then
+        assertThat(retry.getId()).isEqualTo(first.getId());
+        assertThat(retry.getPayStatus()).isEqualTo("완료");
+    }
+
+    private Order newOrder(String username) {
+        Order order = new Order();
+        order.setUsername(username);
+        return order;
+    }
+}
@@ -0,0 +1,69 @@
+package hello.springtx.order;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class OrderCsvExporterTest {
+
+    @Autowired OrderService orderService;
+    @Autowired OrderRepository orderRepository;
+    @Autowired OrderCsvExporter exporter;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired EntityManager em;
+
+    @Test
+    void export(@TempDir Path dir) throws NotEnoughMoneyException, IOException {
+        // given
+        for (int i = 0; i < 3; i++) {
+            Order order = new Order();
+            order.setUsername("정상");
+            orderService.order(order);
+        }
+        long completed = orderRepository.findAll().stream().filter(o -> "완료".equals(o.getPayStatus())).count();
+
+        // when
+        Path file = dir.resolve("orders.csv");
+        long rows = exporter.export("완료", file);
+
+        // then
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertThat(rows).isEqualTo(completed);
+        assertThat(lines).hasSize((int) completed + 1);
+        assertThat(lines.get(0)).isEqualTo(OrderCsvExporter.HEADER);
+        assertThat(lines.subList(1, lines.size())).allMatch(line -> line.contains(",정상,완료,"));
+    }
+
+    // 스트림으로 받은 주문은 영속성 컨텍스트에 남지 않는다.
+    @Test
+    void detachedRows() throws NotEnoughMoneyException {
+        Order saved = new Order();
+        saved.setUsername("정상");
+        orderService.order(saved);
+
+        TransactionTemplate txTemplate = new TransactionTemplate(transactionManager);
+        txTemplate.setReadOnly(true);
+        txTemplate.executeWithoutResult(status -> {
+            try (Stream<Order> orders = orderRepository.streamByPayStatus("완료", 2)) {
+                List<Order> all = orders.collect(Collectors.toList());
+                assertThat(all).extracting(Order::getId).contains(saved.getId());
+                assertThat(all).noneMatch(em::contains);
+            }
+        });
+    }
+}
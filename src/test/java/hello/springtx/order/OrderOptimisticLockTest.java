@@ -0,0 +1,188 @@
+package hello.springtx.order;
+
+import hello.springtx.common.RetryOnOptimisticLock;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Slf4j
+@SpringBootTest
+class OrderOptimisticLockTest {
+
+    static final String CONFLICT_METHOD = "hello.springtx.order.OrderOptimisticLockTest$ConflictingUpdater.update";
+
+    @Autowired OrderService orderService;
+    @Autowired OrderRepository orderRepository;
+    @Autowired ConflictingUpdater conflictingUpdater;
+    @Autowired UsernameUpdater usernameUpdater;
+    @Autowired MeterRegistry meterRegistry;
+
+    // 처음 실행에서 다른 트랜잭션이 먼저 커밋 -> 버전 충돌 -> 새 트랜잭션으로 재시도해서 성공
+    @Test
+    void retryAfterConflict() throws NotEnoughMoneyException {
+        // given
+        Long orderId = newOrder();
+        conflictingUpdater.reset();
+
+        // when
+        conflictingUpdater.update(orderId, "대기", 1);
+
+        // then
+        Order order = orderRepository.findById(orderId).get();
+        assertThat(order.getPayStatus()).isEqualTo("대기");
+        assertThat(order.getVersion()).isEqualTo(2); // 주문(0) -> 다른 트랜잭션(1) -> 재시도(2)
+        assertThat(conflictingUpdater.getAttempts()).isEqualTo(2);
+        assertThat(meterRegistry.get("springtx.tx.optimistic.retry").tag("method", CONFLICT_METHOD)
+                .counter().count()).isGreaterThanOrEqualTo(1);
+    }
+
+    // 매번 충돌하면 최대 실행 횟수만큼 시도하고 예외를 던진다.
+    @Test
+    void exhausted() throws NotEnoughMoneyException {
+        // given
+        Long orderId = newOrder();
+        conflictingUpdater.reset();
+
+        // when
+        assertThatThrownBy(() -> conflictingUpdater.update(orderId, "대기", Integer.MAX_VALUE))
+                .isInstanceOf(ObjectOptimisticLockingFailureException.class);
+
+        // then
+        assertThat(conflictingUpdater.getAttempts()).isEqualTo(5); // springtx.tx.optimistic-lock.max-attempts
+        assertThat(meterRegistry.get("springtx.tx.optimistic.exhausted").tag("method", CONFLICT_METHOD)
+                .counter().count()).isGreaterThanOrEqualTo(1);
+    }
+
+    // 여러 스레드가 같은 주문을 동시에 수정해도 잃어버리는 수정이 없다.
+    // 스레드마다 다른 값을 쓰므로 모든 수정이 update 가 되고, 버전은 수정 횟수만큼 오른다.
+    // 한 스레드는 다른 스레드가 커밋할 때만 충돌하므로 최대 threads - 1 번 충돌한다. (max-attempts=5 안에서 모두 성공)
+    @Test
+    void concurrentUpdates() throws Exception {
+        // given
+        Long orderId = newOrder();
+        int threads = 5;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+
+        // when
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        List<String> usernames = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            String username = "writer-" + i;
+            usernames.add(username);
+            futures.add(CompletableFuture.runAsync(() -> {
+                await(start);
+                usernameUpdater.update(orderId, username);
+            }, executor));
+        }
+        start.countDown();
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join(); // 하나라도 실패하면 여기서 예외
+        executor.shutdown();
+
+        // then - 충돌한 수정도 재시도로 모두 커밋되었다.
+        Order order = orderRepository.findById(orderId).get();
+        assertThat(order.getVersion()).isEqualTo(threads); // 주문(0) + 수정 threads 번
+        assertThat(usernames).contains(order.getUsername());
+        log.info("충돌 횟수={}", meterRegistry.find("springtx.tx.optimistic.conflict").counters().stream()
+                .mapToDouble(c -> c.count()).sum());
+    }
+
+    private Long newOrder() throws NotEnoughMoneyException {
+        Order order = new Order();
+        order.setUsername("정상");
+        orderService.order(order);
+        return order.getId();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        ConflictingUpdater conflictingUpdater(OrderRepository orderRepository, PlatformTransactionManager transactionManager) {
+            return new ConflictingUpdater(orderRepository, transactionManager);
+        }
+
+        @Bean
+        UsernameUpdater usernameUpdater(OrderRepository orderRepository) {
+            return new UsernameUpdater(orderRepository);
+        }
+    }
+
+    // 주문자 이름을 바꾼다. - 스레드마다 다른 값을 쓰게 해서 모든 수정이 실제 update 가 되도록
+    static class UsernameUpdater {
+
+        private final OrderRepository orderRepository;
+
+        UsernameUpdater(OrderRepository orderRepository) {
+            this.orderRepository = orderRepository;
+        }
+
+        @RetryOnOptimisticLock
+        @Transactional
+        public void update(Long orderId, String username) {
+            orderRepository.findById(orderId).get().setUsername(username);
+        }
+    }
+
+    // 주문을 읽은 뒤, 커밋 전에 다른 트랜잭션(REQUIRES_NEW)이 같은 주문을 먼저 수정하고 커밋한다.
+    static class ConflictingUpdater {
+
+        private final OrderRepository orderRepository;
+        private final TransactionTemplate otherTx;
+        private int attempts;
+
+        ConflictingUpdater(OrderRepository orderRepository, PlatformTransactionManager transactionManager) {
+            this.orderRepository = orderRepository;
+            this.otherTx = new TransactionTemplate(transactionManager);
+            this.otherTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        }
+
+        @RetryOnOptimisticLock
+        @Transactional
+        public void update(Long orderId, String payStatus, int conflicts) {
+            attempts++;
+            Order order = orderRepository.findById(orderId).get();
+            if (attempts <= conflicts) {
+                otherTx.executeWithoutResult(status ->
+                        orderRepository.findById(orderId).get().setUsername("다른 요청"));
+            }
+            order.setPayStatus(payStatus);
+        }
+
+        // 프록시(CGLIB)를 통해 호출해도 대상 객체의 값을 읽도록 메서드로 노출한다.
+        public int getAttempts() {
+            return attempts;
+        }
+
+        public void reset() {
+            attempts = 0;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package hello.springtx.order;
+
+import hello.springtx.SpringtxApplication;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 결제 응답 시간이 20ms, 커넥션 풀이 10개일 때 주문 처리량 비교
+ * - sync     : OrderService.order - 결제하는 동안 커넥션을 잡고 있으므로 처리량이 풀 크기 / 결제 시간에 묶인다.
+ * - pipeline : OrderPipelineService.order - 결제하는 동안 커넥션을 잡지 않는다.
+ *
+ * ./gradlew benchmark --tests hello.springtx.order.OrderPipelineBenchmarkTest
+ */
+@Slf4j
+@Tag("benchmark")
+class OrderPipelineBenchmarkTest {
+
+    static final int ORDERS = 2000;
+    static final int CLIENTS = 64;
+
+    @Test
+    void ordersPerSecond() throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(SpringtxApplication.class)
+                .properties("spring.datasource.hikari.maximum-pool-size=10",
+                        "springtx.order.payment.latency=20ms",
+                        "springtx.order.payment.pipeline.threads=" + CLIENTS,
+                        "logging.level.org.hibernate.SQL=OFF",
+                        "logging.level.hello.springtx=WARN")
+                .run()) {
+
+            OrderService orderService = context.getBean(OrderService.class);
+            OrderPipelineService orderPipelineService = context.getBean(OrderPipelineService.class);
+
+            log.warn("[sync]     {} orders/sec", measure(() -> {
+                orderService.order(newOrder());
+                return null;
+            }));
+            log.warn("[pipeline] {} orders/sec", measure(() -> orderPipelineService.order(newOrder()).join()));
+        }
+    }
+
+    private long measure(Callable<?> order) throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        long start = System.nanoTime();
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            results.add(clients.submit(order));
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        clients.shutdown();
+        return ORDERS * 1_000_000_000L / elapsed;
+    }
+
+    private Order newOrder() {
+        Order order = new Order();
+        order.setUsername("정상");
+        return order;
+    }
+}
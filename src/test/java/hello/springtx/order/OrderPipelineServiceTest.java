@@ -0,0 +1,99 @@
+package hello.springtx.order;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Slf4j
+@SpringBootTest
+class OrderPipelineServiceTest {
+
+    @Autowired
+    OrderPipelineService orderPipelineService;
+    @Autowired
+    OrderRepository orderRepository;
+    @Autowired
+    PaymentGateway paymentGateway;
+    @Autowired
+    ShardedOrderService shardedOrderService;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    PaymentProperties paymentProperties;
+
+    // 결제 정상 - 완료
+    @Test
+    void complete() {
+
+        // given
+        Order order = new Order();
+        order.setUsername("정상");
+
+        // when
+        Order completed = orderPipelineService.order(order).join();
+
+        // then
+        Order findOrder = orderRepository.findById(order.getId()).get();
+        assertThat(findOrder.getPayStatus()).isEqualTo("완료");
+        assertThat(completed.getPayStatus()).isEqualTo("완료");
+        assertThat(completed).isNotSameAs(order);
+        assertThat(order.getPayStatus()).isEqualTo("대기"); // 호출한 쪽의 order 는 결제 스레드가 바꾸지 않는다.
+    }
+
+    // 결제 이상 - 시스템 예외 - 주문 삭제 (OrderService 의 롤백과 같은 결과)
+    @Test
+    void runtimeException() {
+
+        // given
+        Order order = new Order();
+        order.setUsername("예외");
+
+        // when
+        assertThatThrownBy(() -> orderPipelineService.order(order).join())
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(RuntimeException.class);
+
+        // then
+        assertThat(orderRepository.findById(order.getId())).isEmpty();
+    }
+
+    // 결제 이상 - 비즈니스 예외 - 대기 상태로 남는다.
+    @Test
+    void bizException() {
+
+        // given
+        Order order = new Order();
+        order.setUsername("잔고부족");
+
+        // when
+        assertThatThrownBy(() -> orderPipelineService.order(order).join())
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(NotEnoughMoneyException.class);
+
+        // then
+        Order findOrder = orderRepository.findById(order.getId()).get();
+        assertThat(findOrder.getPayStatus()).isEqualTo("대기");
+    }
+
+    // 종료된 뒤의 주문은 결제 작업을 버리지 않고 바로 실패한다. - 주문은 "대기" 로 남는다.
+    @Test
+    void rejectedAfterShutdown() throws InterruptedException {
+        OrderPipelineService closed = new OrderPipelineService(orderRepository, paymentGateway, shardedOrderService,
+                transactionManager, paymentProperties);
+        closed.shutdown();
+
+        Order order = new Order();
+        order.setUsername("정상");
+
+        assertThatThrownBy(() -> closed.order(order)).isInstanceOf(RejectedExecutionException.class);
+        assertThat(orderRepository.findById(order.getId()).get().getPayStatus()).isEqualTo("대기");
+    }
+}
@@ -0,0 +1,83 @@
+package hello.springtx.order;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {"springtx.order.reprocess.chunk-size=3", "springtx.order.reprocess.workers=2"})
+class PendingOrderReprocessorTest {
+
+    @Autowired OrderService orderService;
+    @Autowired OrderRepository orderRepository;
+    @Autowired ReprocessCheckpointRepository checkpointRepository;
+    @Autowired PendingOrderReprocessor reprocessor;
+    @Autowired MeterRegistry meterRegistry;
+
+    @Test
+    void reprocess() throws Exception {
+        // given - 결제가 밀린 주문과 여전히 잔고가 부족한 주문
+        List<Long> ready = savePending("정상", 7);
+        Order notEnoughMoney = new Order();
+        notEnoughMoney.setUsername("잔고부족");
+        assertThatThrownBy(() -> orderService.order(notEnoughMoney)).isInstanceOf(NotEnoughMoneyException.class);
+
+        // when
+        ReprocessResult result = reprocessor.run();
+
+        // then
+        assertThat(ready).allMatch(id -> payStatus(id).equals("완료"));
+        assertThat(payStatus(notEnoughMoney.getId())).isEqualTo("대기");
+        assertThat(result.getCompleted()).isGreaterThanOrEqualTo(ready.size());
+        assertThat(result.getStillPending()).isGreaterThanOrEqualTo(1);
+        assertThat(result.getChunks()).isGreaterThanOrEqualTo(3);
+        assertThat(checkpointRepository.findById(PendingOrderReprocessor.CHECKPOINT).get().getLastId()).isZero();
+        assertThat(meterRegistry.get("springtx.order.reprocess.orders").tag("outcome", "completed")
+                .counter().count()).isGreaterThanOrEqualTo(ready.size());
+    }
+
+    // 중단된 작업은 체크포인트 다음 주문부터 다시 시작한다.
+    @Test
+    void resumeFromCheckpoint() throws Exception {
+        // given - 앞의 주문까지 처리하고 중단된 상태
+        List<Long> ids = savePending("정상", 4);
+        ReprocessCheckpoint checkpoint = checkpointRepository.findById(PendingOrderReprocessor.CHECKPOINT)
+                .orElseGet(() -> new ReprocessCheckpoint(PendingOrderReprocessor.CHECKPOINT));
+        checkpoint.setLastId(ids.get(1));
+        checkpointRepository.save(checkpoint);
+
+        // when
+        reprocessor.run();
+
+        // then - 체크포인트 이전 주문은 다시 보지 않는다.
+        assertThat(payStatus(ids.get(0))).isEqualTo("대기");
+        assertThat(payStatus(ids.get(1))).isEqualTo("대기");
+        assertThat(payStatus(ids.get(2))).isEqualTo("완료");
+        assertThat(payStatus(ids.get(3))).isEqualTo("완료");
+
+        // 끝까지 처리했으므로 다음 실행은 처음부터 - 남은 주문도 처리된다.
+        reprocessor.run();
+        assertThat(ids).allMatch(id -> payStatus(id).equals("완료"));
+    }
+
+    private List<Long> savePending(String username, int count) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Order order = new Order();
+            order.setUsername(username);
+            order.setPayStatus("대기");
+            ids.add(orderRepository.save(order).getId());
+        }
+        return ids;
+    }
+
+    private String payStatus(Long id) {
+        return orderRepository.findById(id).get().getPayStatus();
+    }
+}
@@ -0,0 +1,69 @@
+package hello.springtx.order;
+
+import hello.springtx.SpringtxApplication;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 주문 5,000건을 동시에 처리할 때 JPA(스레드 64개)와 R2DBC(리액티브, 동시 요청 256개)의 처리량 비교
+ *
+ * ./gradlew benchmark --tests hello.springtx.order.ReactiveOrderBenchmarkTest
+ */
+@Slf4j
+@Tag("benchmark")
+class ReactiveOrderBenchmarkTest {
+
+    static final int ORDERS = 5000;
+    static final int JPA_THREADS = 64;
+    static final int REACTIVE_CONCURRENCY = 256;
+
+    @Test
+    void ordersPerSecond() throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(SpringtxApplication.class)
+                .properties("springtx.order.reactive.enabled=true",
+                        "logging.level.org.hibernate.SQL=OFF",
+                        "logging.level.hello.springtx=WARN")
+                .run()) {
+
+            OrderService orderService = context.getBean(OrderService.class);
+            ReactiveOrderService reactiveOrderService = context.getBean(ReactiveOrderService.class);
+
+            ExecutorService clients = Executors.newFixedThreadPool(JPA_THREADS);
+            long start = System.nanoTime();
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < ORDERS; i++) {
+                results.add(clients.submit(() -> {
+                    orderService.order(newOrder());
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+            log.warn("[jpa]      {} orders/sec", ORDERS * 1_000_000_000L / (System.nanoTime() - start));
+            clients.shutdown();
+
+            start = System.nanoTime();
+            Flux.range(0, ORDERS)
+                    .flatMap(i -> reactiveOrderService.order(newOrder()), REACTIVE_CONCURRENCY)
+                    .blockLast();
+            log.warn("[reactive] {} orders/sec", ORDERS * 1_000_000_000L / (System.nanoTime() - start));
+        }
+    }
+
+    private Order newOrder() {
+        Order order = new Order();
+        order.setUsername("정상");
+        return order;
+    }
+}
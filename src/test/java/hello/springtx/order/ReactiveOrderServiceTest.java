@@ -0,0 +1,73 @@
+package hello.springtx.order;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import reactor.test.StepVerifier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Slf4j
+@SpringBootTest(properties = "springtx.order.reactive.enabled=true")
+class ReactiveOrderServiceTest {
+
+    @Autowired
+    ReactiveOrderService orderService;
+    @Autowired
+    ReactiveOrderRepository orderRepository;
+
+    // 결제 정상 - 커밋
+    @Test
+    void complete() {
+
+        // given
+        Order order = new Order();
+        order.setUsername("정상");
+
+        // when
+        StepVerifier.create(orderService.order(order))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        // then
+        Order findOrder = orderRepository.findById(order.getId()).block();
+        assertThat(findOrder.getPayStatus()).isEqualTo("완료");
+        assertThat(findOrder.getVersion()).isEqualTo(1L);
+    }
+
+    // 결제 이상 - 시스템 예외 - 언체크(런타임) 예외 - 롤백
+    @Test
+    void runtimeException() {
+
+        // given
+        Order order = new Order();
+        order.setUsername("예외");
+
+        // when
+        StepVerifier.create(orderService.order(order))
+                .expectError(RuntimeException.class)
+                .verify();
+
+        // then
+        assertThat(orderRepository.findById(order.getId()).blockOptional()).isEmpty();
+    }
+
+    // 결제 이상 - 비즈니스 예외 - 체크(Exception) 예외 - 커밋
+    @Test
+    void bizException() {
+
+        // given
+        Order order = new Order();
+        order.setUsername("잔고부족");
+
+        // when
+        StepVerifier.create(orderService.order(order))
+                .expectError(NotEnoughMoneyException.class)
+                .verify();
+
+        // then
+        Order findOrder = orderRepository.findById(order.getId()).block();
+        assertThat(findOrder.getPayStatus()).isEqualTo("대기");
+    }
+}
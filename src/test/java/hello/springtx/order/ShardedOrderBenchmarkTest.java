@@ -0,0 +1,70 @@
+package hello.springtx.order;
+
+import hello.springtx.SpringtxApplication;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * shard 수에 따른 주문 처리량 - 전체 커넥션 수는 8개로 같게 두고 shard 에 나눈다. (shard 1개 8, 2개 4씩, 4개 2씩)
+ * 결제 응답 시간은 0 - 커넥션을 기다리는 시간이 아니라 DB 하나가 하는 일(insert, 인덱스, 락)이 처리량을 정하게 한다.
+ * (커넥션 수를 shard 마다 늘리면 처리량은 풀 크기만큼 늘어날 뿐 sharding 의 효과를 보여주지 않는다)
+ *
+ * ./gradlew benchmark --tests hello.springtx.order.ShardedOrderBenchmarkTest
+ */
+@Slf4j
+@Tag("benchmark")
+class ShardedOrderBenchmarkTest {
+
+    static final int ORDERS = 2000;
+    static final int CLIENTS = 64;
+    static final int TOTAL_CONNECTIONS = 8;
+
+    @Test
+    void ordersPerSecond() throws Exception {
+        for (int shards : new int[]{1, 2, 4}) {
+            int poolSize = TOTAL_CONNECTIONS / shards;
+            try (ConfigurableApplicationContext context = new SpringApplicationBuilder(SpringtxApplication.class)
+                    .properties("springtx.datasource.shard.enabled=true",
+                            "springtx.datasource.shard.count=" + shards,
+                            "springtx.datasource.shard.pool-size=" + poolSize,
+                            "spring.datasource.hikari.maximum-pool-size=" + poolSize,
+                            "springtx.order.payment.latency=0ms",
+                            "logging.level.org.hibernate.SQL=OFF",
+                            "logging.level.hello.springtx=WARN")
+                    .run()) {
+
+                ShardedOrderService shardedOrderService = context.getBean(ShardedOrderService.class);
+                log.warn("[shards={}, connections={}x{}] {} orders/sec", shards, shards, poolSize, measure(shardedOrderService));
+            }
+        }
+    }
+
+    private long measure(ShardedOrderService shardedOrderService) throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        long start = System.nanoTime();
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            Order order = new Order();
+            order.setUsername("user-" + i); // 정상, 예외, 잔고부족 외의 이름은 정상 승인된다.
+            results.add(clients.submit(() -> {
+                shardedOrderService.order(order);
+                return null;
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        clients.shutdown();
+        return ORDERS * 1_000_000_000L / elapsed;
+    }
+}
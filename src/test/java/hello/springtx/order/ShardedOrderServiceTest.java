@@ -0,0 +1,205 @@
+package hello.springtx.order;
+
+import hello.springtx.datasource.ShardRoutingDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(properties = {"springtx.datasource.shard.enabled=true", "springtx.datasource.shard.count=3"})
+class ShardedOrderServiceTest {
+
+    @Autowired ShardedOrderService shardedOrderService;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired DataSource dataSource;
+    @Autowired IdempotentOrderService idempotentOrderService;
+    @Autowired OrderPipelineService orderPipelineService;
+    @Autowired PendingOrderReprocessor reprocessor;
+    @Autowired OrderCsvExporter exporter;
+    @Autowired OrderRepository orderRepository;
+    @Autowired OrderService orderService;
+    @Autowired MeterRegistry meterRegistry;
+
+    ShardRoutingDataSource routing;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        routing = dataSource.unwrap(ShardRoutingDataSource.class);
+    }
+
+    // 주문은 username 해시로 고른 shard 하나에만 저장된다.
+    @Test
+    void orderIsStoredInItsShard() throws NotEnoughMoneyException {
+        assertThat(routing.getShardCount()).isEqualTo(3);
+
+        for (int i = 0; i < 30; i++) {
+            Order order = newOrder("user-" + i);
+            shardedOrderService.order(order);
+
+            int shard = shardedOrderService.shardOf(order.getUsername());
+            for (int s = 0; s < routing.getShardCount(); s++) {
+                assertThat(countById(s, order.getId())).isEqualTo(s == shard ? 1 : 0);
+            }
+        }
+    }
+
+    // 잔고 부족은 그 shard 에 "대기" 로 커밋되고, 시스템 예외는 그 shard 에서 롤백된다.
+    @Test
+    void transactionIsLocalToShard() {
+        Order notEnoughMoney = newOrder("잔고부족");
+        assertThatThrownBy(() -> shardedOrderService.order(notEnoughMoney)).isInstanceOf(NotEnoughMoneyException.class);
+        Order failed = newOrder("예외");
+        assertThatThrownBy(() -> shardedOrderService.order(failed)).isInstanceOf(RuntimeException.class);
+
+        int shard = shardedOrderService.shardOf("잔고부족");
+        assertThat(new JdbcTemplate(routing.getShard(shard))
+                .queryForObject("select pay_status from orders where id = ?", String.class, notEnoughMoney.getId()))
+                .isEqualTo("P");
+        assertThat(shardedOrderService.findById(notEnoughMoney.getId())).get()
+                .extracting(Order::getPayStatus).isEqualTo("대기");
+        assertThat(shardedOrderService.findAll()).extracting(Order::getUsername).doesNotContain("예외");
+    }
+
+    // 관리용 조회는 모든 shard 의 결과를 합친다.
+    @Test
+    void scatterGather() throws NotEnoughMoneyException {
+        long completedBefore = shardedOrderService.countByPayStatus("완료");
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            Order order = newOrder("scatter-" + i);
+            shardedOrderService.order(order);
+            ids.add(order.getId());
+        }
+
+        List<Order> all = shardedOrderService.findAll();
+        assertThat(all).extracting(Order::getId).containsAll(ids).doesNotHaveDuplicates().isSorted();
+        assertThat(IntStream.range(0, 12).map(i -> shardedOrderService.shardOf("scatter-" + i)).distinct().count())
+                .isGreaterThan(1);
+        assertThat(ids).allMatch(id -> shardedOrderService.findById(id).isPresent());
+        assertThat(shardedOrderService.countByPayStatus("완료")).isEqualTo(completedBefore + ids.size());
+    }
+
+    // shard 는 트랜잭션을 시작하기 전에 정해야 한다.
+    @Test
+    void orderInsideTransaction() {
+        TransactionTemplate txTemplate = new TransactionTemplate(transactionManager);
+        assertThatThrownBy(() -> txTemplate.executeWithoutResult(status -> {
+            try {
+                shardedOrderService.order(newOrder("정상"));
+            } catch (NotEnoughMoneyException e) {
+                throw new IllegalStateException(e);
+            }
+        })).isInstanceOf(IllegalStateException.class);
+    }
+
+    // shard 마다 풀의 커넥션 획득 지표가 따로 기록된다.
+    @Test
+    void shardPoolMetrics() throws NotEnoughMoneyException {
+        for (int i = 0; i < 6; i++) {
+            shardedOrderService.order(newOrder("metrics-" + i));
+        }
+
+        for (int shard = 1; shard < routing.getShardCount(); shard++) {
+            Timer acquire = meterRegistry.find("hikaricp.connections.acquire").tag("pool", "springtx-shard-" + shard).timer();
+            assertThat(acquire).isNotNull();
+            assertThat(acquire.count()).isPositive();
+        }
+    }
+
+    // 결제 상태 변경은 주문이 있는 shard 에서 한다.
+    @Test
+    void updatePayStatusInItsShard() throws NotEnoughMoneyException {
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            Order order = newOrder("update-" + i);
+            shardedOrderService.order(order);
+            orders.add(order);
+        }
+        assertThat(orders).extracting(order -> shardedOrderService.shardOf(order.getUsername())).contains(1, 2);
+
+        for (Order order : orders) {
+            assertThat(shardedOrderService.updatePayStatus(order.getId(), "대기").getPayStatus()).isEqualTo("대기");
+            assertThat(new JdbcTemplate(routing.getShard(shardedOrderService.shardOf(order.getUsername())))
+                    .queryForObject("select pay_status from orders where id = ?", String.class, order.getId()))
+                    .isEqualTo("P");
+        }
+        assertThatThrownBy(() -> shardedOrderService.updatePayStatus(-1L, "완료")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // shard 를 정하지 않고 OrderService 를 직접 호출하면 shard 0 에 저장하지 않고 바로 실패한다.
+    @Test
+    void orderServiceRequiresShard() {
+        Order order = newOrder("direct");
+        long before = countAll(0);
+        assertThatThrownBy(() -> orderService.order(order)).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> orderService.updatePayStatus(1L, "완료")).isInstanceOf(IllegalStateException.class);
+        assertThat(countAll(0)).isEqualTo(before);
+    }
+
+    // 다른 주문 서비스도 username 의 shard 를 쓰고, 재처리와 내보내기는 모든 shard 를 돈다.
+    @Test
+    void otherEntryPointsUseShards(@TempDir Path dir) throws Exception {
+        List<Long> pending = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            String username = "entry-" + i;
+            int shard = shardedOrderService.shardOf(username);
+
+            Order idempotent = newOrder(username);
+            idempotentOrderService.order("entry-key-" + i, idempotent);
+            assertThat(countById(shard, idempotent.getId())).isEqualTo(1);
+            Order retry = newOrder(username);
+            idempotentOrderService.order("entry-key-" + i, retry);
+            assertThat(retry.getId()).isEqualTo(idempotent.getId());
+
+            Order pipelined = orderPipelineService.order(newOrder(username)).join();
+            assertThat(countById(shard, pipelined.getId())).isEqualTo(1);
+
+            Order waiting = newOrder(username);
+            waiting.setPayStatus("대기");
+            pending.add(shardedOrderService.callInShard(shard,
+                    () -> new TransactionTemplate(transactionManager).execute(status -> orderRepository.save(waiting))).getId());
+        }
+
+        reprocessor.run();
+        assertThat(pending).allMatch(id -> shardedOrderService.findById(id).get().getPayStatus().equals("완료"));
+
+        Path file = dir.resolve("orders.csv");
+        exporter.export("완료", file);
+        List<String> exported = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertThat(exported).hasSize((int) shardedOrderService.countByPayStatus("완료") + 1);
+        assertThat(pending).allMatch(id -> exported.stream().anyMatch(line -> line.startsWith(id + ",")));
+    }
+
+    private int countById(int shard, Long id) {
+        return new JdbcTemplate(routing.getShard(shard))
+                .queryForObject("select count(*) from orders where id = ?", Integer.class, id);
+    }
+
+    private long countAll(int shard) {
+        return new JdbcTemplate(routing.getShard(shard)).queryForObject("select count(*) from orders", Long.class);
+    }
+
+    private static Order newOrder(String username) {
+        Order order = new Order();
+        order.setUsername(username);
+        return order;
+    }
+}
@@ -0,0 +1,76 @@
+package hello.springtx.propagation;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {"springtx.log.outbox.poll-interval-ms=600000", // 테스트 중에 스케줄러가 outbox 를 가져가지 않도록
+        "springtx.log.outbox.retry-delay=0s", "springtx.log.outbox.max-attempts=2"})
+class LogOutboxRelayTest {
+
+    @Autowired LogOutboxRepository logOutboxRepository;
+    @Autowired LogOutboxRelay logOutboxRelay;
+    @Autowired LogRepository logRepository;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired EntityManager em;
+
+    // 먼저 선점한 인스턴스의 행은 lease 가 끝나기 전까지 다른 인스턴스가 가져가지 않는다.
+    @Test
+    void claimIsExclusive() {
+        save("claim_1", "claim_2", "claim_3");
+
+        List<String> first = messages(logOutboxRepository.claim(100, 5, Duration.ofMinutes(1)));
+        List<String> second = messages(logOutboxRepository.claim(100, 5, Duration.ofMinutes(1)));
+
+        assertThat(first).contains("claim_1", "claim_2", "claim_3");
+        assertThat(second).doesNotContain("claim_1", "claim_2", "claim_3");
+    }
+
+    // 옮기지 못한 outbox 는 삭제하지 않고 실패 횟수를 올려 남겨 둔다. max-attempts 에 도달하면 더 이상 시도하지 않는다.
+    @Test
+    void failedOutboxIsKept() {
+        save("relay_ok", "로그예외_relay_fail");
+
+        logOutboxRelay.relay();
+
+        assertThat(logRepository.find("relay_ok")).isPresent();
+        assertThat(find("relay_ok")).isEmpty();
+        List<LogOutbox> failed = find("로그예외_relay_fail");
+        assertThat(failed).hasSize(1);
+        assertThat(failed.get(0).getAttempts()).isEqualTo(1);
+        assertThat(failed.get(0).getClaimedBy()).isNull();
+
+        logOutboxRelay.relay(); // retry-delay=0s 이므로 바로 다시 시도한다.
+        assertThat(find("로그예외_relay_fail").get(0).getAttempts()).isEqualTo(2);
+
+        logOutboxRelay.relay(); // max-attempts 에 도달 - 더 이상 선점하지 않는다.
+        assertThat(find("로그예외_relay_fail").get(0).getAttempts()).isEqualTo(2);
+    }
+
+    private void save(String... messages) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            for (String message : messages) {
+                logOutboxRepository.save(new LogOutbox(message));
+            }
+        });
+    }
+
+    private List<LogOutbox> find(String message) {
+        return em.createQuery("select o from LogOutbox o where o.message = :message", LogOutbox.class)
+                .setParameter("message", message)
+                .getResultList();
+    }
+
+    private static List<String> messages(List<LogOutbox> outboxes) {
+        return outboxes.stream().map(LogOutbox::getMessage).collect(Collectors.toList());
+    }
+}
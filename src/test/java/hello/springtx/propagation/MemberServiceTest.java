@@ -4,9 +4,15 @@ import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.UnexpectedRollbackException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.*;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @Slf4j
@@ -16,6 +22,9 @@ class MemberServiceTest {
     @Autowired MemberService memberService;
     @Autowired MemberRepository memberRepository;
     @Autowired LogRepository logRepository;
+    @Autowired AsyncLogWriter asyncLogWriter;
+    @Autowired LogOutboxRelay logOutboxRelay;
+    @Autowired PlatformTransactionManager transactionManager;
 
     /**
      * MemberService    @Transactional:OFF
@@ -37,6 +46,25 @@ class MemberServiceTest {
         assertTrue(logRepository.find(username).isPresent());
     }
 
+    /**
+     * MemberService    @Transactional:ON
+     * MemberRepository existsByUsername - 이미 가입된 username
+     *
+     */
+    @Test
+    void duplicateUsername_fail() {
+
+        // given
+        String username = "duplicateUsername_fail";
+        memberService.joinV1(username);
+        assertTrue(memberRepository.existsByUsername(username));
+        assertFalse(memberRepository.existsByUsername(username + "_없음"));
+
+        // when 같은 username 으로 다시 가입하면 저장 전에 실패한다.
+        assertThatThrownBy(() -> memberService.joinV1(username))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
     /**
      * MemberService    @Transactional:OFF
      * MemberRepository @Transactional:ON
@@ -169,4 +197,186 @@ class MemberServiceTest {
 
     }
 
-}
\ No newline at end of file
+    /**
+     * MemberService    @Transactional:ON
+     * MemberRepository @Transactional:ON
+     * AsyncLogWriter   백그라운드 배치 저장
+     *
+     */
+    @Test
+    void asyncLog_success() throws InterruptedException {
+
+        // given
+        String username = "asyncLog_success";
+
+        // when
+        memberService.joinV3(username);
+
+        // then 로그는 백그라운드에서 저장된다.
+        assertTrue(asyncLogWriter.awaitFlushed(Duration.ofSeconds(5)));
+        assertTrue(memberRepository.find(username).isPresent());
+        assertTrue(logRepository.find(username).isPresent());
+    }
+
+    /**
+     * MemberService    @Transactional:ON
+     * MemberRepository @Transactional:ON
+     * AsyncLogWriter   백그라운드 배치 저장 EXCEPTION
+     *
+     */
+    @Test
+    void asyncLog_fail() throws InterruptedException {
+
+        // given
+        String username = "로그예외_asyncLog_fail";
+
+        // when
+        memberService.joinV3(username);
+
+        // then log 저장은 실패하지만, member 저장은 성공한다.
+        assertTrue(asyncLogWriter.awaitFlushed(Duration.ofSeconds(5)));
+        assertTrue(memberRepository.find(username).isPresent());
+        assertTrue(logRepository.find(username).isEmpty());
+    }
+
+    /**
+     * MemberService    @Transactional:ON
+     * MemberRepository @Transactional:ON
+     * AsyncLogWriter   커밋 후에만 호출 - 외부 트랜잭션 ROLLBACK
+     *
+     */
+    @Test
+    void asyncLog_memberRollback() throws InterruptedException {
+
+        // given
+        String username = "asyncLog_memberRollback";
+        long written = asyncLogWriter.getWrittenCount();
+
+        // when 회원 저장 후 외부 트랜잭션이 롤백된다.
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            memberService.joinV3(username);
+            status.setRollbackOnly();
+        });
+
+        // then 회원 저장이 롤백되었으므로 로그도 남기지 않는다.
+        assertTrue(asyncLogWriter.awaitFlushed(Duration.ofSeconds(5)));
+        assertThat(asyncLogWriter.getWrittenCount()).isEqualTo(written);
+        assertTrue(memberRepository.find(username).isEmpty());
+        assertTrue(logRepository.find(username).isEmpty());
+    }
+
+    /**
+     * MemberService    @Transactional:ON
+     * MemberRepository @Transactional:ON
+     * LogOutbox        @Transactional:ON (같은 트랜잭션)
+     *
+     */
+    @Test
+    void outbox_success() {
+
+        // given
+        String username = "outbox_success";
+
+        // when
+        memberService.joinV4(username);
+        logOutboxRelay.relay();
+
+        // then outbox 가 Log 로 옮겨진다.
+        assertTrue(memberRepository.find(username).isPresent());
+        assertTrue(logRepository.find(username).isPresent());
+    }
+
+    /**
+     * MemberService    @Transactional:ON
+     * MemberRepository @Transactional:ON
+     * LogOutbox        @Transactional:ON (같은 트랜잭션), Log 로 옮길 때 EXCEPTION
+     *
+     */
+    @Test
+    void outbox_fail() {
+
+        // given
+        String username = "로그예외_outbox_fail";
+
+        // when
+        memberService.joinV4(username);
+        logOutboxRelay.relay();
+
+        // then log 저장은 실패하지만, member 저장은 성공한다.
+        assertTrue(memberRepository.find(username).isPresent());
+        assertTrue(logRepository.find(username).isEmpty());
+    }
+
+    /**
+     * MemberService    @Transactional:ON
+     * MemberRepository @Transactional:ON
+     * LogRepository    savepoint (같은 커넥션)
+     *
+     */
+    @Test
+    void savepoint_success() {
+
+        // given
+        String username = "savepoint_success";
+
+        // when
+        memberService.joinV5(username);
+
+        // then 모든 데이터가 정상 저장된다
+        assertTrue(memberRepository.find(username).isPresent());
+        assertTrue(logRepository.find(username).isPresent());
+    }
+
+    /**
+     * MemberService    @Transactional:ON
+     * MemberRepository @Transactional:ON
+     * LogRepository    savepoint (같은 커넥션) EXCEPTION
+     *
+     */
+    @Test
+    void savepoint_fail() {
+
+        // given
+        String username = "로그예외_savepoint_fail";
+
+        // when
+        memberService.joinV5(username);
+
+        // then log 는 savepoint 까지 롤백되고, member 저장은 성공한다.
+        assertTrue(memberRepository.find(username).isPresent());
+        assertTrue(logRepository.find(username).isEmpty());
+    }
+
+    /**
+     * MemberService    joinAll - chunk 단위 트랜잭션
+     * MemberRepository @Transactional:ON (saveAll)
+     * LogRepository    @Transactional:ON(REQUIRES_NEW) (saveAll) EXCEPTION
+     *
+     */
+    @Test
+    void joinAll() {
+
+        // given
+        List<String> usernames = List.of("joinAll_1", "로그예외_joinAll_2", "joinAll_3");
+
+        // when
+        BulkJoinResult result = memberService.joinAll(usernames);
+
+        // then 로그 저장이 실패한 회원도 저장된다.
+        assertThat(result.statusOf(0)).isEqualTo(BulkJoinResult.Status.JOINED);
+        assertThat(result.statusOf(1)).isEqualTo(BulkJoinResult.Status.LOG_FAILED);
+        assertThat(result.statusOf(2)).isEqualTo(BulkJoinResult.Status.JOINED);
+        usernames.forEach(username -> assertTrue(memberRepository.find(username).isPresent()));
+        assertTrue(logRepository.find("joinAll_1").isPresent());
+        assertTrue(logRepository.find("로그예외_joinAll_2").isEmpty());
+    }
+
+    @Test
+    void joinAll_invalidChunkSize() {
+        BulkJoinProperties properties = new BulkJoinProperties();
+
+        // chunk 크기가 0 이하면 설정 단계에서 실패한다. (joinAll 이 무한 반복하지 않도록)
+        assertThatThrownBy(() -> properties.setChunkSize(0)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(properties.getChunkSize()).isEqualTo(500);
+    }
+}
@@ -0,0 +1,34 @@
+package hello.springtx.startup;
+
+import hello.springtx.order.PendingOrderReprocessor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.scheduling.config.CronTask;
+import org.springframework.scheduling.config.ScheduledTask;
+import org.springframework.scheduling.config.ScheduledTaskHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ActiveProfiles("fast-startup")
+@SpringBootTest(properties = {"springtx.order.reprocess.cron=0 0 3 * * *",
+        "springtx.log.outbox.poll-interval-ms=600000"})
+class FastStartupConfigTest {
+
+    @Autowired ConfigurableApplicationContext context;
+
+    // 지연 초기화에서도 @Scheduled 빈은 구동 시점에 만들어져 스케줄러에 등록된다.
+    @Test
+    void scheduledReprocessorIsCreated() {
+        assertThat(context.getBeanFactory().containsSingleton("pendingOrderReprocessor")).isTrue();
+        assertThat(context.getBeansOfType(ScheduledTaskHolder.class).values().stream()
+                .flatMap(holder -> holder.getScheduledTasks().stream())
+                .map(ScheduledTask::getTask)
+                .filter(CronTask.class::isInstance)
+                .map(CronTask.class::cast))
+                .anyMatch(task -> task.getExpression().equals("0 0 3 * * *")
+                        && task.toString().startsWith(PendingOrderReprocessor.class.getName()));
+    }
+}
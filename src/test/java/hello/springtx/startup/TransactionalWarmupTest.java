@@ -0,0 +1,27 @@
+package hello.springtx.startup;
+
+import hello.springtx.propagation.LogRepository;
+import hello.springtx.propagation.MemberRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {"springtx.warmup.enabled=true", "springtx.warmup.iterations=3"})
+class TransactionalWarmupTest {
+
+    @Autowired TransactionalWarmup warmup;
+    @Autowired MemberRepository memberRepository;
+    @Autowired LogRepository logRepository;
+
+    // 워밍업은 rollback-only 트랜잭션에서 실행되므로 데이터가 남지 않는다.
+    @Test
+    void noDataLeft() {
+        assertThat(warmup).isNotNull();
+        for (int i = 0; i < 3; i++) {
+            assertThat(memberRepository.existsByUsername("warmup-" + i)).isFalse();
+            assertThat(logRepository.find("warmup-" + i)).isEmpty();
+        }
+    }
+}
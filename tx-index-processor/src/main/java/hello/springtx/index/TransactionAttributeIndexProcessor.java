@@ -0,0 +1,296 @@
+package hello.springtx.index;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * 컴파일되는 모든 클래스의 public 메서드에 적용될 @Transactional 속성을 미리 계산해서 인덱스 파일로 남긴다.
+ *
+ * 인덱스 (META-INF/springtx/transaction-attributes.properties)
+ *   hello.springtx.order.OrderService=                                     인덱스에 포함된 클래스
+ *   hello.springtx.order.OrderService#order(hello.springtx.order.Order)=PROPAGATION_REQUIRED,ISOLATION_DEFAULT
+ *
+ * 값은 TransactionAttributeEditor 형식(PROPAGATION_, ISOLATION_, timeout_, readOnly, +예외, -예외)이고
+ * 트랜잭션 매니저를 지정하면 qualifier_ 토큰이 붙는다.
+ *
+ * 속성을 찾는 순서는 AnnotationTransactionAttributeSource 와 같다.
+ * 1. 메서드 (오버라이드한 상위 클래스, 인터페이스 메서드 포함)
+ * 2. 메서드를 선언한 클래스 (상위 클래스, 인터페이스 포함)
+ *
+ * 플레이스홀더가 필요한 속성(timeoutString, label)이나 메타 애노테이션(@Transactional 을 붙인 애노테이션)은
+ * 컴파일 시점에 계산할 수 없으므로 그런 클래스는 인덱스에 넣지 않는다. - 실행 시 리플렉션으로 찾는다.
+ */
+@SupportedAnnotationTypes("*")
+public class TransactionAttributeIndexProcessor extends AbstractProcessor {
+
+    static final String INDEX_LOCATION = "META-INF/springtx/transaction-attributes.properties";
+    static final String TRANSACTIONAL = "org.springframework.transaction.annotation.Transactional";
+
+    private final Map<String, String> index = new TreeMap<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            writeIndex();
+            return false;
+        }
+        for (Element element : roundEnv.getRootElements()) {
+            scan(element);
+        }
+        return false; // 다른 프로세서(lombok)도 같은 애노테이션을 처리할 수 있어야 한다.
+    }
+
+    private void scan(Element element) {
+        if (element.getKind() == ElementKind.CLASS) {
+            indexClass((TypeElement) element);
+        }
+        for (TypeElement nested : ElementFilter.typesIn(element.getEnclosedElements())) {
+            scan(nested);
+        }
+    }
+
+    private void indexClass(TypeElement type) {
+        Elements elements = processingEnv.getElementUtils();
+        Map<String, String> entries = new LinkedHashMap<>();
+        try {
+            for (ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers(type))) {
+                if (!method.getModifiers().contains(Modifier.PUBLIC) || method.getModifiers().contains(Modifier.STATIC)
+                        || isObject((TypeElement) method.getEnclosingElement())) {
+                    continue;
+                }
+                AnnotationMirror transactional = findOnMethod(method, type);
+                if (transactional == null) {
+                    transactional = findOnClass((TypeElement) method.getEnclosingElement());
+                }
+                if (transactional != null) {
+                    entries.put(methodKey(type, method), describe(transactional));
+                }
+            }
+        } catch (NotIndexableException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE,
+                    "트랜잭션 속성 인덱스에서 제외: " + e.getMessage(), type);
+            return;
+        }
+        if (!entries.isEmpty()) {
+            index.put(elements.getBinaryName(type).toString(), "");
+            index.putAll(entries);
+        }
+    }
+
+    // 메서드와 메서드가 오버라이드한 상위 클래스/인터페이스 메서드
+    private AnnotationMirror findOnMethod(ExecutableElement method, TypeElement target) {
+        AnnotationMirror found = transactionalOf(method);
+        if (found != null) {
+            return found;
+        }
+        TypeElement declaring = (TypeElement) method.getEnclosingElement();
+        for (TypeElement supertype : supertypes(declaring)) {
+            for (ExecutableElement candidate : ElementFilter.methodsIn(supertype.getEnclosedElements())) {
+                if (processingEnv.getElementUtils().overrides(method, candidate, declaring)) {
+                    found = transactionalOf(candidate);
+                    if (found != null) {
+                        return found;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    // 클래스와 상위 클래스, 인터페이스
+    private AnnotationMirror findOnClass(TypeElement declaring) {
+        AnnotationMirror found = transactionalOf(declaring);
+        if (found != null) {
+            return found;
+        }
+        for (TypeElement supertype : supertypes(declaring)) {
+            found = transactionalOf(supertype);
+            if (found != null) {
+                return found;
+            }
+        }
+        return null;
+    }
+
+    private AnnotationMirror transactionalOf(Element element) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            TypeElement annotationType = (TypeElement) mirror.getAnnotationType().asElement();
+            if (annotationType.getQualifiedName().contentEquals(TRANSACTIONAL)) {
+                return mirror;
+            }
+            if (isMetaAnnotated(annotationType, new HashSet<>())) {
+                throw new NotIndexableException("메타 애노테이션 " + annotationType.getQualifiedName());
+            }
+        }
+        return null;
+    }
+
+    // @Transactional 을 붙인 애노테이션인가 (여러 단계 포함)
+    private static boolean isMetaAnnotated(TypeElement annotationType, Set<TypeElement> visited) {
+        if (annotationType.getQualifiedName().toString().startsWith("java.lang.annotation.") || !visited.add(annotationType)) {
+            return false;
+        }
+        for (AnnotationMirror mirror : annotationType.getAnnotationMirrors()) {
+            TypeElement meta = (TypeElement) mirror.getAnnotationType().asElement();
+            if (meta.getQualifiedName().contentEquals(TRANSACTIONAL) || isMetaAnnotated(meta, visited)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // 상위 클래스를 먼저, 그다음 인터페이스 (너비 우선)
+    private List<TypeElement> supertypes(TypeElement type) {
+        Types types = processingEnv.getTypeUtils();
+        List<TypeElement> result = new ArrayList<>();
+        List<TypeElement> queue = new ArrayList<>();
+        queue.add(type);
+        for (int i = 0; i < queue.size(); i++) {
+            for (TypeMirror supertype : types.directSupertypes(queue.get(i).asType())) {
+                TypeElement element = (TypeElement) types.asElement(supertype);
+                if (element != null && !isObject(element) && !result.contains(element)) {
+                    result.add(element);
+                    queue.add(element);
+                }
+            }
+        }
+        return result;
+    }
+
+    // TransactionAttributeEditor 형식 + qualifier_
+    private String describe(AnnotationMirror transactional) {
+        Map<String, AnnotationValue> values = new LinkedHashMap<>();
+        processingEnv.getElementUtils().getElementValuesWithDefaults(transactional)
+                .forEach((key, value) -> values.put(key.getSimpleName().toString(), value));
+
+        List<String> tokens = new ArrayList<>();
+        tokens.add("PROPAGATION_" + ((VariableElement) values.get("propagation").getValue()).getSimpleName());
+        tokens.add("ISOLATION_" + ((VariableElement) values.get("isolation").getValue()).getSimpleName());
+        int timeout = (Integer) values.get("timeout").getValue();
+        if (timeout != -1) {
+            tokens.add("timeout_" + timeout);
+        }
+        if (values.containsKey("timeoutString") && !((String) values.get("timeoutString").getValue()).isEmpty()) {
+            throw new NotIndexableException("timeoutString");
+        }
+        if (values.containsKey("label") && !((List<?>) values.get("label").getValue()).isEmpty()) {
+            throw new NotIndexableException("label");
+        }
+        if ((Boolean) values.get("readOnly").getValue()) {
+            tokens.add("readOnly");
+        }
+        classNames(values.get("rollbackFor")).forEach(name -> tokens.add("-" + name));
+        strings(values.get("rollbackForClassName")).forEach(name -> tokens.add("-" + name));
+        classNames(values.get("noRollbackFor")).forEach(name -> tokens.add("+" + name));
+        strings(values.get("noRollbackForClassName")).forEach(name -> tokens.add("+" + name));
+
+        String qualifier = (String) values.get("value").getValue();
+        if (qualifier.isEmpty()) {
+            qualifier = (String) values.get("transactionManager").getValue();
+        }
+        if (!qualifier.isEmpty()) {
+            tokens.add("qualifier_" + qualifier);
+        }
+        return String.join(",", tokens);
+    }
+
+    private List<String> classNames(AnnotationValue value) {
+        return ((List<?>) value.getValue()).stream()
+                .map(item -> (TypeMirror) ((AnnotationValue) item).getValue())
+                .map(type -> processingEnv.getElementUtils()
+                        .getBinaryName((TypeElement) ((DeclaredType) type).asElement()).toString())
+                .collect(Collectors.toList());
+    }
+
+    private static List<String> strings(AnnotationValue value) {
+        return ((List<?>) value.getValue()).stream()
+                .map(item -> (String) ((AnnotationValue) item).getValue())
+                .collect(Collectors.toList());
+    }
+
+    // 클래스#메서드(파라미터 타입의 erasure, 정식 이름) - 실행 시 Class.getCanonicalName() 으로 같은 키를 만든다.
+    private String methodKey(TypeElement type, ExecutableElement method) {
+        Types types = processingEnv.getTypeUtils();
+        String parameters = method.getParameters().stream()
+                .map(parameter -> canonicalName(types.erasure(parameter.asType())))
+                .collect(Collectors.joining(","));
+        return processingEnv.getElementUtils().getBinaryName(type) + "#" + method.getSimpleName() + "(" + parameters + ")";
+    }
+
+    private String canonicalName(TypeMirror type) {
+        if (type.getKind() == TypeKind.ARRAY) {
+            return canonicalName(((ArrayType) type).getComponentType()) + "[]";
+        }
+        if (type.getKind() == TypeKind.DECLARED) {
+            return ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString();
+        }
+        return type.toString(); // 기본 타입
+    }
+
+    private static boolean isObject(TypeElement type) {
+        return type.getQualifiedName().contentEquals("java.lang.Object");
+    }
+
+    private void writeIndex() {
+        if (index.isEmpty()) {
+            return;
+        }
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", INDEX_LOCATION);
+            try (Writer writer = file.openWriter()) {
+                writer.write("# @Transactional 속성 인덱스 - TransactionAttributeIndexProcessor 가 생성\n");
+                for (Map.Entry<String, String> entry : index.entrySet()) {
+                    writer.write(escape(entry.getKey()) + "=" + entry.getValue() + "\n");
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "트랜잭션 속성 인덱스를 쓸 수 없다: " + e);
+        }
+    }
+
+    // properties 키에서 의미가 있는 문자
+    private static String escape(String key) {
+        return key.replace("\\", "\\\\").replace("=", "\\=").replace(":", "\\:").replace(" ", "\\ ");
+    }
+
+    private static class NotIndexableException extends RuntimeException {
+        NotIndexableException(String message) {
+            super(message);
+        }
+    }
+}